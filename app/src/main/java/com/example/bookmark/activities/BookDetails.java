@@ -1,7 +1,7 @@
 package com.example.bookmark.activities;
 
+import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
@@ -15,37 +15,51 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 
+import com.example.bookmark.data.BookCache;
+import com.example.bookmark.data.MarkedBooksRepository;
+import com.example.bookmark.images.Thumbnails;
 import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.network.VolumeDetailLoader;
+import com.example.bookmark.BuildConfig;
 import com.example.bookmark.R;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import com.squareup.picasso.Picasso;
-
-import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.DescriptionTextCache;
 
 /**
  * BookDetails is an activity that displays detailed information about a selected book.
- * It retrieves book details from an Intent and populates the UI with this data.
+ * It receives only the book's volume ID and looks the book up in the shared BookCache or
+ * the marked books, so the Intent stays small however long the description is, and the
+ * book that gets marked here is the same record that was shown in the list.
+ * When that record is only a list summary, the full record is loaded through
+ * VolumeDetailLoader and replaces it on screen and in the marked books.
+ * The description is laid out off the main thread by DescriptionTextCache; a long one is
+ * shown collapsed until the user expands it.
  * It also provides options to preview or purchase the book via external links.
  */
 public class BookDetails extends AppCompatActivity {
 
-    // Variables for book details
-    String title, subtitle, publisher, publishedDate, description, thumbnail, previewLink, infoLink, buyLink;
-    int pageCount;
-    private ArrayList<String> authors;
+    // Intent extra holding the volume ID of the book to show
+    public static final String EXTRA_BOOK_ID = "id";
+    // Saved state key for whether the description is expanded
+    private static final String STATE_DESCRIPTION_EXPANDED = "descriptionExpanded";
 
     // UI components
-    TextView titleTV, subtitleTV, publisherTV, descTV, pageTV, publishDateTV;
+    TextView titleTV, subtitleTV, publisherTV, descTV, descToggleTV, pageTV, publishDateTV;
     Button previewBtn, buyBtn, markBtn;
     private ImageView bookIV;
 
+    private MarkedBooksRepository markedBooksRepository;
+
+    // The book whose description is shown, and whether it is expanded
+    private BookInfo descriptionBook;
+    private boolean descriptionExpanded;
+
     /**
      * Called when the activity is first created. This method initializes UI components,
-     * retrieves book data from the intent, and sets up event listeners.
+     * resolves the book named by the intent, and sets up event listeners.
      * @param savedInstanceState If the activity is being re-initialized after being previously shut down,
      *                           this contains the most recent data.
      */
@@ -53,12 +67,14 @@ public class BookDetails extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_book_details);
+        markedBooksRepository = MarkedBooksRepository.getInstance(this);
 
         // Initializing UI components
         titleTV = findViewById(R.id.idTVTitle);
         subtitleTV = findViewById(R.id.idTVSubTitle);
         publisherTV = findViewById(R.id.idTVpublisher);
         descTV = findViewById(R.id.idTVDescription);
+        descToggleTV = findViewById(R.id.idTVDescriptionToggle);
         pageTV = findViewById(R.id.idTVNoOfPages);
         publishDateTV = findViewById(R.id.idTVPublishDate);
         previewBtn = findViewById(R.id.idBtnPreview);
@@ -66,38 +82,130 @@ public class BookDetails extends AppCompatActivity {
         markBtn = findViewById(R.id.idBtnMark); // Initialize the Mark button
         bookIV = findViewById(R.id.idIVbook);
 
-        // Retrieving book data from Intent extras
-        title = getIntent().getStringExtra("title");
-        subtitle = getIntent().getStringExtra("subtitle");
-        publisher = getIntent().getStringExtra("publisher");
-        publishedDate = getIntent().getStringExtra("publishedDate");
-        description = getIntent().getStringExtra("description");
-        pageCount = getIntent().getIntExtra("pageCount", 0);
-        thumbnail = getIntent().getStringExtra("thumbnail");
-        previewLink = getIntent().getStringExtra("previewLink");
-        infoLink = getIntent().getStringExtra("infoLink");
-        buyLink = getIntent().getStringExtra("buyLink");
-
-        // Setting retrieved data to UI components
-        titleTV.setText(title);
-        subtitleTV.setText(subtitle);
-        publisherTV.setText(publisher);
-        publishDateTV.setText("Published On : " + publishedDate);
-        descTV.setText(description);
-        pageTV.setText("No Of Pages : " + pageCount);
-
-        // Load the book's thumbnail image using Picasso
-        Picasso.get().load(thumbnail).into(bookIV);
+        if (savedInstanceState != null) {
+            descriptionExpanded = savedInstanceState.getBoolean(STATE_DESCRIPTION_EXPANDED);
+        }
+        descToggleTV.setOnClickListener(v -> {
+            descriptionExpanded = !descriptionExpanded;
+            if (descriptionBook != null) {
+                showDescription(descriptionBook);
+            }
+        });
+
+        // Resolve the book from memory, falling back to the disk copy after process death
+        String id = getIntent().getStringExtra(EXTRA_BOOK_ID);
+        BookInfo found = findBook(id);
+        if (found != null) {
+            showBookAndDetails(found);
+        } else {
+            BookCache bookCache = BookCache.getInstance(this);
+            AppExecutors.diskIO().execute(() -> {
+                BookInfo cached = bookCache.getFromDisk(id);
+                // Runs after the repository's load, which was queued on this thread first
+                BookInfo stored = (cached != null) ? cached : markedBooksRepository.getMarkedBook(id);
+                AppExecutors.mainThread().execute(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    if (stored != null) {
+                        showBookAndDetails(stored);
+                    } else {
+                        Toast.makeText(BookDetails.this, "Book details are no longer available", Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+                });
+            });
+        }
+    }
+
+    /**
+     * Creates the Intent that opens BookDetails for a book, caching the book so the new
+     * screen can look it up by ID.
+     * @param context The context starting the activity.
+     * @param book The book to show.
+     * @return The Intent to start.
+     */
+    public static Intent newIntent(Context context, BookInfo book) {
+        BookCache.getInstance(context).put(book);
+        Intent intent = new Intent(context, BookDetails.class);
+        intent.putExtra(EXTRA_BOOK_ID, book.getId());
+        return intent;
+    }
+
+    /**
+     * Looks a book up in the places that answer without disk I/O.
+     * @param id The volume ID.
+     * @return The book, or null if it is only on disk or unknown.
+     */
+    private BookInfo findBook(String id) {
+        BookInfo found = BookCache.getInstance(this).get(id);
+        return (found != null) ? found : markedBooksRepository.getMarkedBook(id);
+    }
+
+    /**
+     * Shows a book and, if it is only a summary, loads and then shows its full record.
+     * @param book The book to show.
+     */
+    private void showBookAndDetails(BookInfo book) {
+        if (!book.isSummary()) {
+            showBook(book);
+            return;
+        }
+        VolumeDetailLoader loader = VolumeDetailLoader.getInstance(this);
+        BookInfo details = loader.peek(book.getId());
+        if (details != null) {
+            showDetails(details);
+            return;
+        }
+        showBook(book);
+        descTV.setText("Loading details...");
+        loader.load(book.getId(), full -> {
+            if (!isDestroyed()) {
+                showDetails(full);
+            }
+        }, error -> {
+            if (!isDestroyed()) {
+                descTV.setText(null);
+                Toast.makeText(BookDetails.this, "Could not load full details", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Shows a book's full record and puts it in place of its summary.
+     * @param details The full record.
+     */
+    private void showDetails(BookInfo details) {
+        BookCache.getInstance(this).put(details);
+        markedBooksRepository.updateDetails(details);
+        showBook(details);
+    }
+
+    /**
+     * Populates the UI with a book and sets up the button listeners.
+     * @param book The book to show.
+     */
+    private void showBook(BookInfo book) {
+        // Setting book data to UI components
+        titleTV.setText(book.getTitle());
+        subtitleTV.setText(book.getSubtitle());
+        publisherTV.setText(book.getPublisher());
+        publishDateTV.setText("Published On : " + book.getPublishedDate());
+        showDescription(book);
+        pageTV.setText("No Of Pages : " + book.getPageCount());
+
+        // Load the book's thumbnail image; the list row's decoded cover is reused from Glide's cache
+        Thumbnails.load(bookIV, book.getThumbnail());
 
         // Set Mark button's click listener
         markBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (isBookMarked(title)) {
-                    unmarkBook(title);
+                if (isBookMarked(book.getId())) {
+                    unmarkBook(book.getId());
                     markBtn.setText("Mark This Book");
                 } else {
-                    markBook(new BookInfo(title, subtitle, authors, publisher, publishedDate, description, pageCount, thumbnail, previewLink, infoLink, buyLink));
+                    markBook(book);
                     markBtn.setText("Unmark This Book");
                 }
             }
@@ -107,7 +215,8 @@ public class BookDetails extends AppCompatActivity {
         previewBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (previewLink.isEmpty()) {
+                String previewLink = book.getPreviewLink();
+                if (previewLink == null || previewLink.isEmpty()) {
                     Toast.makeText(BookDetails.this, "No preview link present", Toast.LENGTH_SHORT).show();
                     return;
                 }
@@ -121,7 +230,8 @@ public class BookDetails extends AppCompatActivity {
         buyBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (buyLink.isEmpty()) {
+                String buyLink = book.getBuyLink();
+                if (buyLink == null || buyLink.isEmpty()) {
                     Toast.makeText(BookDetails.this, "No buy page present for this book on Google Play", Toast.LENGTH_SHORT).show();
                     return;
                 }
@@ -132,13 +242,71 @@ public class BookDetails extends AppCompatActivity {
         });
 
         // Set the Mark button text based on whether the book is already marked
-        if (isBookMarked(title)) {
+        if (isBookMarked(book.getId())) {
             markBtn.setText("Unmark Book");
         } else {
             markBtn.setText("Mark Book");
         }
     }
 
+    /**
+     * Shows a book's description from DescriptionTextCache, computing it in the background
+     * the first time. Until then the description stays blank, rather than being laid out
+     * in full on the main thread.
+     * @param book The book whose description to show.
+     */
+    private void showDescription(BookInfo book) {
+        descriptionBook = book;
+        String description = book.getDescription();
+        if (description == null || description.isEmpty()) {
+            descTV.setText(description);
+            descToggleTV.setVisibility(View.GONE);
+            return;
+        }
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(descTV);
+        DescriptionTextCache cache = DescriptionTextCache.getInstance();
+        DescriptionTextCache.Texts texts = cache.peek(book.getId(), description, params);
+        if (texts != null && (texts.full != null || !descriptionExpanded)) {
+            bindDescription(texts);
+            return;
+        }
+        if (texts == null) {
+            descTV.setText(null);
+            descToggleTV.setVisibility(View.GONE);
+        }
+        cache.load(book.getId(), description, params, descriptionExpanded, loaded -> {
+            // Skip results for a book or state that has been replaced in the meantime
+            if (!isDestroyed() && descriptionBook == book) {
+                bindDescription(loaded);
+            }
+        });
+    }
+
+    /**
+     * Sets the collapsed or full description text and updates the toggle.
+     * @param texts The precomputed description.
+     */
+    private void bindDescription(DescriptionTextCache.Texts texts) {
+        boolean showFull = !texts.isCollapsible() || (descriptionExpanded && texts.full != null);
+        TextViewCompat.setPrecomputedText(descTV, showFull ? texts.full : texts.collapsed);
+        if (texts.isCollapsible()) {
+            descToggleTV.setText(showFull ? "Show less" : "Show more");
+            descToggleTV.setVisibility(View.VISIBLE);
+        } else {
+            descToggleTV.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Saves whether the description is expanded.
+     * @param outState The bundle to save into.
+     */
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_DESCRIPTION_EXPANDED, descriptionExpanded);
+    }
+
     /**
      * Inflates the options menu from the XML resource.
      * @param menu The options menu in which items are placed.
@@ -160,14 +328,16 @@ public class BookDetails extends AppCompatActivity {
         int id = item.getItemId();
 
         if (id == R.id.action_search) {
-            // Navigate to MainActivity (Search)
+            // Navigate to MainActivity (Search), reusing the existing search screen
             Intent intent = new Intent(this, MainActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
             startActivity(intent);
             return true;
 
         } else if (id == R.id.action_marked_books) {
-            // Navigate to MarkedBooksActivity
+            // Navigate to MarkedBooksActivity, reusing an open one
             Intent intent = new Intent(this, MarkedBooksActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
             startActivity(intent);
             return true;
         }
@@ -175,86 +345,48 @@ public class BookDetails extends AppCompatActivity {
     }
 
     /**
-     * Marks a book by saving it to SharedPreferences.
+     * Writes any pending bookmark changes to disk while the activity is in the background.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        markedBooksRepository.flush();
+    }
+
+    /**
+     * Marks a book through the shared repository.
      * @param book The book to be marked.
      */
     private void markBook(BookInfo book) {
-        SharedPreferences preferences = getSharedPreferences("MarkedBooksPrefs", MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        Gson gson = new Gson();
-
-        // Get existing list
-        String json = preferences.getString("markedBooks", "[]");
-        Type type = new TypeToken<List<BookInfo>>() {}.getType();
-        List<BookInfo> bookList = gson.fromJson(json, type);
-
-        // Add new book if it's not already in the list
-        for (BookInfo b : bookList) {
-            if (b.getTitle().equals(book.getTitle())) {
-                Log.d("BookMarking", "Book is already marked: " + book.getTitle());
-                return; // Avoid duplicates
-            }
+        if (markedBooksRepository.mark(book)) {
+            Log.d("BookMarking", "Book marked: " + book.getTitle());
+        } else {
+            Log.d("BookMarking", "Book is already marked: " + book.getTitle());
         }
-        bookList.add(book);
-
-        // Save updated list
-        String updatedJson = gson.toJson(bookList);
-        editor.putString("markedBooks", updatedJson);
-        editor.apply();
-
-        Log.d("BookMarking", "Book marked: " + book.getTitle());
     }
 
 
     /**
-     * Unmarks a book by removing it from SharedPreferences.
-     * @param title The title of the book to be unmarked.
+     * Unmarks a book through the shared repository.
+     * @param id The volume ID of the book to be unmarked.
      */
-    private void unmarkBook(String title) {
-        SharedPreferences preferences = getSharedPreferences("MarkedBooksPrefs", MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        Gson gson = new Gson();
-
-        // Get existing list
-        String json = preferences.getString("markedBooks", "[]");
-        Type type = new TypeToken<List<BookInfo>>() {}.getType();
-        List<BookInfo> bookList = gson.fromJson(json, type);
-
-        // Remove book by title
-        bookList.removeIf(book -> book.getTitle().equals(title));
-
-        // Save updated list
-        String updatedJson = gson.toJson(bookList);
-        editor.putString("markedBooks", updatedJson);
-        editor.apply();
-
-        Log.d("BookMarking", "Book unmarked: " + title);
+    private void unmarkBook(String id) {
+        markedBooksRepository.unmark(id);
+        Log.d("BookMarking", "Book unmarked: " + id);
     }
 
 
     /**
-     * Checks if a book is marked (exists in SharedPreferences).
-     * @param title The title of the book to check.
+     * Checks if a book is marked using the repository's in-memory index.
+     * @param id The volume ID of the book to check.
      * @return true if the book is marked, false otherwise.
      */
-    private boolean isBookMarked(String title) {
-        SharedPreferences preferences = getSharedPreferences("MarkedBooksPrefs", MODE_PRIVATE);
-        Gson gson = new Gson();
-
-        // Get existing list
-        String json = preferences.getString("markedBooks", "[]");
-        Type type = new TypeToken<List<BookInfo>>() {}.getType();
-        List<BookInfo> bookList = gson.fromJson(json, type);
-
-        // Check if book exists in list
-        for (BookInfo book : bookList) {
-            if (book.getTitle().equals(title)) {
-                Log.d("BookMarking", "Book is marked: " + title);
-                return true;
-            }
+    private boolean isBookMarked(String id) {
+        boolean marked = markedBooksRepository.isMarked(id);
+        if (BuildConfig.DEBUG) {
+            Log.d("BookMarking", (marked ? "Book is marked: " : "Book is not marked: ") + id);
         }
-        Log.d("BookMarking", "Book is not marked: " + title);
-        return false;
+        return marked;
     }
 
 }
@@ -1,7 +1,14 @@
 package com.example.bookmark.activities;
 
 import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -15,21 +22,25 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.Response;
+import com.android.volley.NoConnectionError;
 import com.android.volley.VolleyError;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.Volley;
 import com.example.bookmark.adapters.BookAdapter;
+import com.example.bookmark.data.MarkedBooksRepository;
+import com.example.bookmark.data.SearchResultStore;
+import com.example.bookmark.images.ThumbnailPrefetcher;
 import com.example.bookmark.models.BookInfo;
 import com.example.bookmark.R;
+import com.example.bookmark.network.NetworkClient;
+import com.example.bookmark.network.SearchPager;
+import com.example.bookmark.network.SummaryUpgrader;
+import com.example.bookmark.network.VolumesUrlBuilder;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.PerfMetrics;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * MainActivity is the primary activity in the app. It allows the user to search for books
@@ -37,14 +48,30 @@ import java.util.ArrayList;
  * navigation options to the "Marked Books" activity via an options menu.
  *
  * This activity handles:
- * - Search functionality using the Google Books API
- * - Display of search results in a RecyclerView
+ * - Search functionality using the Google Books API, live as the user types, showing
+ *   stored results first and refreshing them when the network is available
+ * - Display of search results in a RecyclerView, loading further pages while scrolling
  * - Navigation to the "Marked Books" activity
  */
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements SearchPager.Listener {
+
+    // Load the next page once the user is this many rows from the end of the window
+    private static final int PREFETCH_DISTANCE = 5;
+    // Live search waits for typing to pause and for a query long enough to be useful
+    private static final long SEARCH_DEBOUNCE_MILLIS = 400;
+    private static final int MIN_LIVE_QUERY_LENGTH = 3;
 
-    private RequestQueue mRequestQueue;
-    private ArrayList<BookInfo> bookInfoArrayList;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable liveSearch = () -> getBooksInfo(searchEdt.getText().toString().trim());
+
+    private SearchPager searchPager;
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            // Called on a connectivity thread; refresh any results shown from the store
+            AppExecutors.mainThread().execute(() -> searchPager.revalidate());
+        }
+    };
     private ProgressBar progressBar;
     private EditText searchEdt;
     private ImageButton searchBtn;
@@ -59,6 +86,9 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        searchPager = new SearchPager(NetworkClient.getInstance(this), SearchResultStore.getInstance(this), this);
+        // Rows only need summaries; BookDetails fetches the rest of a book when it is opened
+        searchPager.setProjection(VolumesUrlBuilder.Projection.SUMMARY);
 
         // Initialize UI components
         progressBar = findViewById(R.id.idLoadingPB);
@@ -66,18 +96,52 @@ public class MainActivity extends AppCompatActivity {
         searchBtn = findViewById(R.id.idBtnSearch);
         mRecyclerView = findViewById(R.id.idRVBooks);
 
-        // Set up RecyclerView layout manager
+        // Set up RecyclerView layout manager and the adapter that pages are added to
         LinearLayoutManager linearLayoutManager = new LinearLayoutManager(this, RecyclerView.VERTICAL, false);
         mRecyclerView.setLayoutManager(linearLayoutManager);
+        bookAdapter = new BookAdapter(new ArrayList<>(), this);
+        mRecyclerView.setAdapter(bookAdapter);
+        ThumbnailPrefetcher.attach(mRecyclerView, bookAdapter);
+
+        // Prefetch neighbouring pages as the user nears either end of the loaded window
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && linearLayoutManager.findLastVisibleItemPosition()
+                        >= bookAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    searchPager.loadNext();
+                } else if (dy < 0 && linearLayoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    searchPager.loadPrevious();
+                }
+            }
+        });
+
+        // Search as the user types, once they pause
+        searchEdt.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchHandler.removeCallbacks(liveSearch);
+                if (s.toString().trim().length() >= MIN_LIVE_QUERY_LENGTH) {
+                    searchHandler.postDelayed(liveSearch, SEARCH_DEBOUNCE_MILLIS);
+                }
+            }
+        });
 
         // Set up click listener for search button
         searchBtn.setOnClickListener(v -> {
-            progressBar.setVisibility(View.VISIBLE);
+            searchHandler.removeCallbacks(liveSearch);
             String query = searchEdt.getText().toString().trim();
             if (query.isEmpty()) {
                 // Show error if search query is empty
                 searchEdt.setError("Please enter search query");
-                progressBar.setVisibility(View.GONE);
             } else {
                 // Fetch book information if query is valid
                 getBooksInfo(query);
@@ -85,6 +149,40 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Starts listening for the network coming back so stored results can be refreshed, and
+     * queues marked summaries to be upgraded in the background.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        NetworkClient.getInstance(this).registerNetworkCallback(networkCallback);
+        SummaryUpgrader.getInstance(this).upgradeMarkedSummaries();
+    }
+
+    /**
+     * Stops listening for network changes and writes any pending bookmark changes to disk,
+     * since the process may be killed at any time once the activity is no longer visible.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        NetworkClient.getInstance(this).unregisterNetworkCallback(networkCallback);
+        MarkedBooksRepository.getInstance(this).flush();
+    }
+
+    /**
+     * Drops any pending live search, cancels in-flight requests and detaches the adapter,
+     * which stops it observing the marked books.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchHandler.removeCallbacks(liveSearch);
+        searchPager.cancel();
+        mRecyclerView.setAdapter(null);
+    }
+
     /**
      * Inflates the options menu from the XML resource.
      * @param menu The options menu in which items are placed.
@@ -93,6 +191,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.options_menu, menu);
+        menu.findItem(R.id.action_perf_metrics).setVisible(PerfMetrics.isEnabled());
         return true;
     }
 
@@ -106,20 +205,44 @@ public class MainActivity extends AppCompatActivity {
         int id = item.getItemId();
 
         if (id == R.id.action_search) {
-            // Navigate to MainActivity (Search)
-            Intent intent = new Intent(this, MainActivity.class);
-            startActivity(intent);
+            // Already on the search screen
             return true;
 
         } else if (id == R.id.action_marked_books) {
-            // Navigate to MarkedBooksActivity
+            // Navigate to MarkedBooksActivity, bringing an open one to the front instead of stacking another
             Intent intent = new Intent(this, MarkedBooksActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
             startActivity(intent);
             return true;
+
+        } else if (id == R.id.action_perf_metrics) {
+            dumpPerfMetrics();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Writes the recorded performance metrics to the app's external files directory,
+     * where they can be pulled with adb without root, and shows where they went.
+     */
+    private void dumpPerfMetrics() {
+        File external = getExternalFilesDir("perf");
+        File directory = (external != null) ? external : new File(getFilesDir(), "perf");
+        AppExecutors.diskIO().execute(() -> {
+            String message;
+            try {
+                message = "Metrics written to " + PerfMetrics.dump(directory);
+            } catch (IOException e) {
+                Log.e("BookMarking", "Could not write performance metrics", e);
+                message = "Could not write performance metrics";
+            }
+            String result = message;
+            AppExecutors.mainThread().execute(() ->
+                    Toast.makeText(getApplicationContext(), result, Toast.LENGTH_LONG).show());
+        });
+    }
+
     /**
      * Handles the selection of an item from the context menu.
      * @param item The selected menu item.
@@ -137,74 +260,51 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Fetches book information from the Google Books API based on the search query.
+     * Starts a new paged search of the Google Books API for the query.
+     * Requests for an older query are cancelled; repeating the current query does nothing.
      * @param query Search query entered by the user
      */
     private void getBooksInfo(String query) {
-        bookInfoArrayList = new ArrayList<>();
-        mRequestQueue = Volley.newRequestQueue(MainActivity.this);
-        mRequestQueue.getCache().clear();
-
-        // URL for Google Books API to search books based on the query
-        String url = "https://www.googleapis.com/books/v1/volumes?q=" + query;
-
-        // Create a new JSON request to fetch book data
-        JsonObjectRequest booksObjRequest = new JsonObjectRequest(Request.Method.GET, url, null,
-                new Response.Listener<JSONObject>() {
-                    @Override
-                    public void onResponse(JSONObject response) {
-                        progressBar.setVisibility(View.GONE); // Hide loading indicator after response
-                        try {
-                            // Parse the response to extract book information
-                            JSONArray itemsArray = response.getJSONArray("items");
-                            for (int i = 0; i < itemsArray.length(); i++) {
-                                JSONObject itemsObj = itemsArray.getJSONObject(i);
-                                JSONObject volumeObj = itemsObj.getJSONObject("volumeInfo");
-
-                                // Extract relevant book details
-                                String title = volumeObj.optString("title");
-                                String subtitle = volumeObj.optString("subtitle");
-                                JSONArray authorsArray = volumeObj.optJSONArray("authors");
-                                String publisher = volumeObj.optString("publisher");
-                                String publishedDate = volumeObj.optString("publishedDate");
-                                String description = volumeObj.optString("description");
-                                int pageCount = volumeObj.optInt("pageCount");
-                                JSONObject imageLinks = volumeObj.optJSONObject("imageLinks");
-                                String thumbnail = (imageLinks != null) ? imageLinks.optString("thumbnail") : "";
-                                String previewLink = volumeObj.optString("previewLink");
-                                String infoLink = volumeObj.optString("infoLink");
-                                JSONObject saleInfoObj = itemsObj.optJSONObject("saleInfo");
-                                String buyLink = (saleInfoObj != null) ? saleInfoObj.optString("buyLink") : "";
-
-                                // Convert authors array to a list of strings
-                                ArrayList<String> authorsArrayList = new ArrayList<>();
-                                if (authorsArray != null) {
-                                    for (int j = 0; j < authorsArray.length(); j++) {
-                                        authorsArrayList.add(authorsArray.optString(j));
-                                    }
-                                }
-
-                                // Add book info to the list
-                                bookInfoArrayList.add(new BookInfo(title, subtitle, authorsArrayList, publisher,
-                                        publishedDate, description, pageCount, thumbnail, previewLink, infoLink, buyLink));
-                            }
-
-
-                            bookAdapter = new BookAdapter(bookInfoArrayList, MainActivity.this);
-                            mRecyclerView.setAdapter(bookAdapter);
-
-                        } catch (JSONException e) {
-                            e.printStackTrace();
-                            Toast.makeText(MainActivity.this, "No Data Found: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        }
-                    }
-                },
-                error -> {
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(MainActivity.this, "Error: " + error.getMessage(), Toast.LENGTH_SHORT).show();
-                });
-
-
-        mRequestQueue.add(booksObjRequest);
+        if (searchPager.search(query)) {
+            progressBar.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * Adds a loaded page of results to the list.
+     * @param position Index of the first new book.
+     * @param books The new books.
+     */
+    @Override
+    public void onItemsInserted(int position, List<BookInfo> books) {
+        progressBar.setVisibility(View.GONE); // Hide loading indicator after response
+        if (books.isEmpty() && searchPager.getItemCount() == 0) {
+            Toast.makeText(MainActivity.this, "No Data Found", Toast.LENGTH_SHORT).show();
+        }
+        bookAdapter.insertBooks(position, books);
+    }
+
+    /**
+     * Removes results that were replaced or dropped from the in-memory window.
+     * @param position Index of the first removed book.
+     * @param count Number of books removed.
+     */
+    @Override
+    public void onItemsRemoved(int position, int count) {
+        bookAdapter.removeBooks(position, count);
+    }
+
+    /**
+     * Reports a failed page request that could not be served from stored results either.
+     * @param error The Volley error.
+     */
+    @Override
+    public void onError(VolleyError error) {
+        progressBar.setVisibility(View.GONE);
+        if (error instanceof NoConnectionError) {
+            Toast.makeText(MainActivity.this, "No connection and no saved results", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(MainActivity.this, "Error: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+        }
     }
 }
@@ -1,44 +1,53 @@
 package com.example.bookmark.activities;
 
-import android.annotation.SuppressLint;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.bookmark.BuildConfig;
 import com.example.bookmark.R;
 import com.example.bookmark.adapters.BookAdapter;
+import com.example.bookmark.data.MarkedBooksRepository;
+import com.example.bookmark.images.ThumbnailPrefetcher;
 import com.example.bookmark.models.BookInfo;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.bookmark.network.SummaryUpgrader;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.PerfMetrics;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * MarkedBooksActivity displays a list of books that have been marked by the user.
  * It uses a RecyclerView with a BookAdapter to show the marked books,
- * which are loaded from SharedPreferences. It also provides sorting options via a Spinner,
- * and listens for a broadcast (ACTION_REFRESH) to refresh its content automatically when
- * a book is marked or unmarked.
+ * which are loaded from the MarkedBooksRepository. It also provides sorting options via a Spinner,
+ * a search box that filters the marked books as the user types, and observes the repository
+ * so a book that is marked or unmarked anywhere in the app is inserted into or removed from
+ * the list in place. The options menu exports the marked books to, or imports them from,
+ * a JSON Lines document picked with the Storage Access Framework.
  *
  */
 public class MarkedBooksActivity extends AppCompatActivity {
@@ -46,20 +55,57 @@ public class MarkedBooksActivity extends AppCompatActivity {
     private RecyclerView recyclerView;
     private BookAdapter bookAdapter;
     private Spinner spinnerSort;
+    private EditText filterEdt;
     private List<BookInfo> markedBooksList;
 
     /**
-     * BroadcastReceiver that listens for ACTION_REFRESH broadcasts to refresh the list
-     * of marked books.
+     * Applies each mark or unmark to the displayed list as a single insert or removal.
      */
-    private BroadcastReceiver refreshReceiver = new BroadcastReceiver() {
+    private final MarkedBooksRepository.ChangeListener changeListener = new MarkedBooksRepository.ChangeListener() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            Log.d("MarkedBooksActivity", "Broadcast received: " + intent.getAction());
+        public void onBookMarked(BookInfo book) {
+            MarkedBooksRepository repository = MarkedBooksRepository.getInstance(MarkedBooksActivity.this);
+            int position = repository.indexOf(book.getId(), spinnerSort.getSelectedItemPosition());
+            // A filtered list, or one that is out of step with the repository, is reloaded instead
+            if (isFiltering() || position < 0 || position > markedBooksList.size()
+                    || markedBooksList.size() + 1 != repository.getMarkedCount()) {
+                refreshMarkedBooks();
+                return;
+            }
+            markedBooksList = repository.getMarkedBooks(spinnerSort.getSelectedItemPosition());
+            bookAdapter.insertBooks(position, Collections.singletonList(book));
+        }
+
+        @Override
+        public void onBookUnmarked(BookInfo book) {
+            for (int i = 0; i < markedBooksList.size(); i++) {
+                if (Objects.equals(markedBooksList.get(i).getId(), book.getId())) {
+                    if (isFiltering()) {
+                        markedBooksList = new ArrayList<>(markedBooksList);
+                        markedBooksList.remove(i);
+                    } else {
+                        markedBooksList = MarkedBooksRepository.getInstance(MarkedBooksActivity.this)
+                                .getMarkedBooks(spinnerSort.getSelectedItemPosition());
+                    }
+                    bookAdapter.removeBooks(i, 1);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onBooksChanged(List<BookInfo> marked, List<BookInfo> unmarked) {
+            // A bulk change is applied with one diff of the whole list
             refreshMarkedBooks();
         }
     };
 
+    // Export and import documents are picked by the user; the app needs no storage permission
+    private final ActivityResultLauncher<String> exportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/x-ndjson"), this::exportMarkedBooks);
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importMarkedBooks);
+
     /**
      * Sets up the UI by initializing the RecyclerView, Spinner, and loads the marked books.
      * The default sort order is "Latest Marked". It also sets up the Spinner's item selected
@@ -74,23 +120,24 @@ public class MarkedBooksActivity extends AppCompatActivity {
         // Initialize views
         recyclerView = findViewById(R.id.recyclerViewMarkedBooks);
         spinnerSort = findViewById(R.id.spinnerSort);
+        filterEdt = findViewById(R.id.idEdtFilterBooks);
 
-        // Load marked books from SharedPreferences
-        markedBooksList = loadMarkedBooks();
-        if (markedBooksList.isEmpty()) {
+        // Load marked books from the shared repository, default sorting: Latest Marked (Index 0)
+        sortBooks(0);
+        // Books still loading from disk arrive through the change listener
+        MarkedBooksRepository repository = MarkedBooksRepository.getInstance(this);
+        if (markedBooksList.isEmpty() && repository.isLoaded()) {
             Log.d("BookMarking", "No books to display.");
             Toast.makeText(this, "No marked books to display.", Toast.LENGTH_SHORT).show();
         } else {
             Log.d("BookMarking", "Books loaded: " + markedBooksList.size());
         }
 
-        // Default sorting: Latest Marked (Index 0)
-        sortBooks(0);
-
         // Set up RecyclerView using BookAdapter for consistent behavior
         bookAdapter = new BookAdapter(new ArrayList<>(markedBooksList), this);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(bookAdapter);
+        ThumbnailPrefetcher.attach(recyclerView, bookAdapter);
 
         // Set up Spinner for sorting options
         ArrayAdapter<CharSequence> spinnerAdapter = ArrayAdapter.createFromResource(this,
@@ -104,9 +151,9 @@ public class MarkedBooksActivity extends AppCompatActivity {
         spinnerSort.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parentView, View selectedItemView, int position, long id) {
+                // The same books in another order: swap the list in rather than diffing it
                 sortBooks(position);
-                bookAdapter.updateBooks(markedBooksList);
-                bookAdapter.notifyDataSetChanged();
+                bookAdapter.replaceBooks(markedBooksList);
             }
 
             @Override
@@ -114,62 +161,67 @@ public class MarkedBooksActivity extends AppCompatActivity {
                 // Do nothing
             }
         });
-    }
 
-    /**
-     * Reloads the marked books, applies the default "Latest Marked" sort order,
-     * and updates the RecyclerView.
-     */
-    @Override
-    protected void onResume() {
-        super.onResume();
-        markedBooksList = loadMarkedBooks();
-        sortBooks(0); // Ensure sorting remains "Latest Marked"
-        bookAdapter.updateBooks(markedBooksList);
-        bookAdapter.notifyDataSetChanged();
-        Log.d("BookMarking", "onResume - Books loaded: " + markedBooksList.size());
+        // Keep the list in step with marks and unmarks made on any screen
+        repository.addChangeListener(changeListener);
+
+        // Filter the list on every keystroke; the search index answers in milliseconds
+        filterEdt.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                sortBooks(spinnerSort.getSelectedItemPosition());
+                bookAdapter.updateBooks(markedBooksList);
+            }
+        });
     }
 
     /**
-     * Called when the activity becomes visible.
-     * Registers the broadcast receiver to listen for ACTION_REFRESH events.
-     *
+     * Queues marked summaries to be upgraded in the background while the list is shown.
      */
-    @SuppressLint("MissingReceiverExport")
     @Override
     protected void onStart() {
         super.onStart();
-        Log.d("MarkedBooksActivity", "onStart: Registering refresh receiver");
-        IntentFilter filter = new IntentFilter("com.example.bookmark.ACTION_REFRESH");
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(refreshReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            //noinspection ReceiverNotExported
-            registerReceiver(refreshReceiver, filter);
-        }
+        SummaryUpgrader.getInstance(this).upgradeMarkedSummaries();
     }
 
     /**
-     * Unregisters the broadcast receiver.
+     * Writes any pending bookmark changes to disk while the activity is in the background.
      */
     @Override
     protected void onStop() {
         super.onStop();
-        Log.d("MarkedBooksActivity", "onStop: Unregistering refresh receiver");
-        unregisterReceiver(refreshReceiver);
+        MarkedBooksRepository.getInstance(this).flush();
+    }
+
+    /**
+     * Stops observing the repository. Detaching the adapter unregisters its listener too.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        MarkedBooksRepository.getInstance(this).removeChangeListener(changeListener);
+        recyclerView.setAdapter(null);
     }
 
     /**
-     * This method reloads the marked books from SharedPreferences, applies the default
+     * This method reloads the marked books from the repository in the selected
      * sort order, and updates the RecyclerView adapter.
      *
      */
-    protected void refreshMarkedBooks() {
-        Log.d("MarkedBooksActivity", "Refreshing marked books...");
-        markedBooksList = loadMarkedBooks();
-        sortBooks(0); // Sort the books after refreshing
+    private void refreshMarkedBooks() {
+        if (BuildConfig.DEBUG) {
+            Log.d("MarkedBooksActivity", "Refreshing marked books...");
+        }
+        sortBooks(spinnerSort.getSelectedItemPosition());
         bookAdapter.updateBooks(markedBooksList);
-        bookAdapter.notifyDataSetChanged();
     }
 
     /**
@@ -180,12 +232,13 @@ public class MarkedBooksActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.options_menu, menu);
+        getMenuInflater().inflate(R.menu.marked_books_menu, menu);
         return true;
     }
 
     /**
-     * Handles selections on the options menu. Navigates to MainActivity when the search option is selected, or prevents reopening
-     * MarkedBooksActivity if it's already open.
+     * Handles selections on the options menu. Brings the search screen to the front when the search option is selected,
+     * does nothing for Marked Books since it is already open, and starts an export or import.
      * @param item the selected menu item.
      * @return true if the menu item is handled.
      */
@@ -194,21 +247,77 @@ public class MarkedBooksActivity extends AppCompatActivity {
         int id = item.getItemId();
 
         if (id == R.id.action_search) {
-            // Navigate to MainActivity (Search)
+            // Navigate to MainActivity (Search), reusing the existing search screen
             Intent intent = new Intent(this, MainActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
             startActivity(intent);
             return true;
         } else if (id == R.id.action_marked_books) {
-            // Prevent opening the MarkedBooksActivity if it's already open
-            if (!(this instanceof MarkedBooksActivity)) {
-                Intent intent = new Intent(this, MarkedBooksActivity.class);
-                startActivity(intent);
-            }
+            // Already on the marked books screen
+            return true;
+        } else if (id == R.id.action_export_marked) {
+            exportLauncher.launch("marked_books.jsonl");
+            return true;
+        } else if (id == R.id.action_import_marked) {
+            importLauncher.launch(new String[]{"application/x-ndjson", "application/json", "text/*", "application/octet-stream"});
             return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Streams the marked books into the document the user created, on the disk thread.
+     * @param uri The document, or null if the user cancelled.
+     */
+    private void exportMarkedBooks(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        MarkedBooksRepository repository = MarkedBooksRepository.getInstance(this);
+        AppExecutors.diskIO().execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) {
+                    throw new IOException("No stream for " + uri);
+                }
+                message = "Exported " + repository.exportTo(out) + " marked books";
+            } catch (IOException e) {
+                Log.e("BookMarking", "Could not export marked books", e);
+                message = "Could not export marked books";
+            }
+            showToast(message);
+        });
+    }
+
+    /**
+     * Marks every book in the document the user picked as one bulk operation, on the disk thread.
+     * @param uri The document, or null if the user cancelled.
+     */
+    private void importMarkedBooks(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        MarkedBooksRepository repository = MarkedBooksRepository.getInstance(this);
+        AppExecutors.diskIO().execute(() -> {
+            String message;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("No stream for " + uri);
+                }
+                message = "Imported " + repository.importFrom(in).size() + " marked books";
+            } catch (IOException e) {
+                Log.e("BookMarking", "Could not import marked books", e);
+                message = "Could not import marked books";
+            }
+            showToast(message);
+        });
+    }
+
+    private void showToast(String message) {
+        AppExecutors.mainThread().execute(() ->
+                Toast.makeText(getApplicationContext(), message, Toast.LENGTH_SHORT).show());
+    }
+
     /**
      * Handles context menu selections.
      * @param item the selected context menu item.
@@ -226,26 +335,7 @@ public class MarkedBooksActivity extends AppCompatActivity {
     }
 
     /**
-     * Loads the marked books from SharedPreferences.
-     * The books are stored as a JSON array under the key "markedBooks" in SharedPreferences.
-     * If no books are found, an empty list is returned.
-     *
-     * @return a List of BookInfo objects representing the marked books.
-     */
-    private List<BookInfo> loadMarkedBooks() {
-        SharedPreferences preferences = getSharedPreferences("MarkedBooksPrefs", MODE_PRIVATE);
-        Gson gson = new Gson();
-        String json = preferences.getString("markedBooks", "[]");
-        Type type = new TypeToken<List<BookInfo>>() {}.getType();
-        List<BookInfo> bookList = gson.fromJson(json, type);
-        if (bookList == null) {
-            bookList = new ArrayList<>();
-        }
-        return bookList;
-    }
-
-    /**
-     * Sorts the marked books list based on the provided position.
+     * Loads the marked books in the order selected by the provided position.
      * <p>
      * The sorting options are:
      * <ul>
@@ -256,68 +346,29 @@ public class MarkedBooksActivity extends AppCompatActivity {
      *     <li>4: Author Ascending</li>
      *     <li>5: Author Descending</li>
      * </ul>
+     * The repository's SortedBookIndex keeps every order up to date as books are marked
+     * and unmarked, so this takes an O(1) snapshot of an existing order rather than sorting
+     * or copying. The list it sets is read-only. While the search
+     * box has text, the books matching it are shown instead, best match first.
      * </p>
      *
      * @param position the index corresponding to the selected sort option.
      */
     private void sortBooks(int position) {
-        switch (position) {
-            case 0: // Latest Marked
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        return Long.compare(book2.getMarkedTime(), book1.getMarkedTime());
-                    }
-                });
-                break;
-            case 1: // Oldest Marked
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        return Long.compare(book1.getMarkedTime(), book2.getMarkedTime());
-                    }
-                });
-                break;
-            case 2: // Published Date Ascending
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        return book1.getPublishedDate().compareTo(book2.getPublishedDate());
-                    }
-                });
-                break;
-            case 3: // Published Date Descending
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        return book2.getPublishedDate().compareTo(book1.getPublishedDate());
-                    }
-                });
-                break;
-            case 4: // Author Ascending
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        String author1 = (book1.getAuthors() != null && !book1.getAuthors().isEmpty())
-                                ? book1.getAuthors().get(0) : "";
-                        String author2 = (book2.getAuthors() != null && !book2.getAuthors().isEmpty())
-                                ? book2.getAuthors().get(0) : "";
-                        return author1.compareTo(author2);
-                    }
-                });
-                break;
-            case 5: // Author Descending
-                Collections.sort(markedBooksList, new Comparator<BookInfo>() {
-                    @Override
-                    public int compare(BookInfo book1, BookInfo book2) {
-                        String author1 = (book1.getAuthors() != null && !book1.getAuthors().isEmpty())
-                                ? book1.getAuthors().get(0) : "";
-                        String author2 = (book2.getAuthors() != null && !book2.getAuthors().isEmpty())
-                                ? book2.getAuthors().get(0) : "";
-                        return author2.compareTo(author1);
-                    }
-                });
-                break;
+        long started = PerfMetrics.start(PerfMetrics.MARKED_SORT);
+        MarkedBooksRepository repository = MarkedBooksRepository.getInstance(this);
+        if (isFiltering()) {
+            markedBooksList = repository.searchMarkedBooks(filterEdt.getText().toString());
+        } else {
+            markedBooksList = repository.getMarkedBooks(position);
         }
+        PerfMetrics.stop(PerfMetrics.MARKED_SORT, started);
+    }
+
+    /**
+     * @return True if the search box has text, so only matching books are shown.
+     */
+    private boolean isFiltering() {
+        return !filterEdt.getText().toString().trim().isEmpty();
     }
 }
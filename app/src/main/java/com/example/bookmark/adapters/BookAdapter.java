@@ -2,47 +2,112 @@ package com.example.bookmark.adapters;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.util.Log;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
+import android.view.Menu;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.bookmark.R;
 import com.example.bookmark.activities.BookDetails;
+import com.example.bookmark.data.MarkedBooksRepository;
+import com.example.bookmark.images.Thumbnails;
 import com.example.bookmark.models.BookInfo;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.bookmark.network.VolumeDetailLoader;
+import com.example.bookmark.util.PerfMetrics;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * BookAdapter handles displaying book information in a RecyclerView.
  * It allows users to mark/unmark books, open book details and share the book.
+ * List changes are diffed on a background thread by an AsyncListDiffer keyed on the
+ * book's volume ID, so only rows that actually changed are rebound or moved.
+ * While attached to a RecyclerView it observes MarkedBooksRepository and refreshes just the
+ * mark icon of a row whose book is marked or unmarked anywhere in the app.
+ * <p>
+ * Rows may hold summaries; touching one starts loading its full record so BookDetails
+ * usually finds it in memory by the time the tap completes.
+ * </p>
+ * <p>
+ * Long-pressing a book starts a selection: further taps add or remove books, and the
+ * action mode marks or unmarks every selected book with one bulk repository operation.
+ * </p>
  */
-public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder> {
+public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder>
+        implements MarkedBooksRepository.ChangeListener {
 
-    private ArrayList<BookInfo> bookInfoArrayList;
+    // Partial-bind payloads: only the mark icon, or only the selection highlight, needs updating
+    private static final Object PAYLOAD_MARK = new Object();
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    /**
+     * Compares books by volume ID, and by displayed fields for content changes.
+     */
+    private static final DiffUtil.ItemCallback<BookInfo> DIFF_CALLBACK = new DiffUtil.ItemCallback<BookInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BookInfo oldBook, @NonNull BookInfo newBook) {
+            return Objects.equals(oldBook.getId(), newBook.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BookInfo oldBook, @NonNull BookInfo newBook) {
+            return Objects.equals(oldBook.getTitle(), newBook.getTitle())
+                    && Objects.equals(oldBook.getPublisher(), newBook.getPublisher())
+                    && oldBook.getPageCount() == newBook.getPageCount()
+                    && Objects.equals(oldBook.getPublishedDate(), newBook.getPublishedDate())
+                    && Objects.equals(oldBook.getThumbnail(), newBook.getThumbnail());
+        }
+    };
+
+    private final AsyncListDiffer<BookInfo> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Stable item IDs by row key, for the rows of the current list only, and the IDs in use
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private final Set<Long> usedStableIds = new HashSet<>();
+    // The most recently submitted list; the differ's current list lags behind until its diff completes
+    private List<BookInfo> latestBooks;
     private Context mcontext;
+    private final MarkedBooksRepository markedBooksRepository;
+    private final VolumeDetailLoader detailLoader;
     private int selectedPosition = -1; // Stores selected item position for context menu
 
+    // Books selected for a bulk action, keyed by volume ID, in the order they were selected
+    private final Map<String, BookInfo> selectedBooks = new LinkedHashMap<>();
+    private ActionMode actionMode;
+
     /**
      * Constructor for BookAdapter.
      * @param bookInfoArrayList List of books to display.
      * @param mcontext Context of the activity.
      */
-    public BookAdapter(ArrayList<BookInfo> bookInfoArrayList, Context mcontext) {
-        this.bookInfoArrayList = bookInfoArrayList;
+    public BookAdapter(List<BookInfo> bookInfoArrayList, Context mcontext) {
         this.mcontext = mcontext;
+        this.markedBooksRepository = MarkedBooksRepository.getInstance(mcontext);
+        this.detailLoader = VolumeDetailLoader.getInstance(mcontext);
+        setHasStableIds(true);
+        differ.addListListener((previous, current) -> pruneStableIds(current));
+        submit(new ArrayList<>(bookInfoArrayList));
     }
 
     @NonNull
@@ -52,62 +117,108 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
         return new BookViewHolder(view);
     }
 
+    /**
+     * Prefetches a summary row's full record on touch-down, ahead of the click that opens
+     * BookDetails. It watches the list's touches without consuming any, so each row keeps
+     * its own click handling, including performClick for accessibility services.
+     */
+    private final RecyclerView.OnItemTouchListener prefetchOnTouch = new RecyclerView.SimpleOnItemTouchListener() {
+        @Override
+        public boolean onInterceptTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent event) {
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                View child = recyclerView.findChildViewUnder(event.getX(), event.getY());
+                BookInfo book = (child != null) ? getBookAt(recyclerView.getChildAdapterPosition(child)) : null;
+                if (book != null && book.isSummary()) {
+                    detailLoader.prefetch(book.getId());
+                }
+            }
+            return false;
+        }
+    };
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        markedBooksRepository.addChangeListener(this);
+        recyclerView.addOnItemTouchListener(prefetchOnTouch);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        markedBooksRepository.removeChangeListener(this);
+        recyclerView.removeOnItemTouchListener(prefetchOnTouch);
+        if (actionMode != null) {
+            actionMode.finish();
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BookViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        String id = differ.getCurrentList().get(position).getId();
+        for (Object payload : payloads) {
+            if (payload == PAYLOAD_MARK) {
+                bindMarkIcon(holder.markIcon, id);
+            } else if (payload == PAYLOAD_SELECTION) {
+                bindSelection(holder, id);
+            } else {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        BookInfo bookInfo = bookInfoArrayList.get(position);
+        long started = PerfMetrics.start(PerfMetrics.ROW_BIND);
+        BookInfo bookInfo = differ.getCurrentList().get(position);
 
         holder.nameTV.setText(bookInfo.getTitle());
         holder.publisherTV.setText(bookInfo.getPublisher());
         holder.pageCountTV.setText("No of Pages : " + bookInfo.getPageCount());
         holder.dateTV.setText(bookInfo.getPublishedDate());
 
-        // Load thumbnail using Glide
-        if (bookInfo.getThumbnail() != null && !bookInfo.getThumbnail().isEmpty()) {
-            Glide.with(holder.bookIV.getContext())
-                    .load(bookInfo.getThumbnail())
-                    .placeholder(R.drawable.placeholder_image)
-                    .error(R.drawable.error_image)
-                    .into(holder.bookIV);
-        } else {
-            holder.bookIV.setImageResource(R.drawable.placeholder_image);
-        }
+        // Load thumbnail using Glide, decoded at the shared cover size
+        Thumbnails.load(holder.bookIV, bookInfo.getThumbnail());
 
         // Handle "Mark" icon state
-        ImageView markIcon = holder.itemView.findViewById(R.id.idMarkIcon);
-        if (isBookMarked(bookInfo.getTitle())) {
-            markIcon.setImageResource(R.drawable.ic_bookmark_filled);
-        } else {
-            markIcon.setImageResource(R.drawable.ic_bookmark_border);
-        }
+        ImageView markIcon = holder.markIcon;
+        bindMarkIcon(markIcon, bookInfo.getId());
+        bindSelection(holder, bookInfo.getId());
 
-        // Toggle Mark/Unmark on Click
+        // Toggle Mark/Unmark on Click; the repository's change event updates the icon
         markIcon.setOnClickListener(v -> {
-            if (isBookMarked(bookInfo.getTitle())) {
-                unmarkBook(bookInfo.getTitle());
-                markIcon.setImageResource(R.drawable.ic_bookmark_border);
+            if (isBookMarked(bookInfo.getId())) {
+                unmarkBook(bookInfo.getId());
             } else {
                 markBook(bookInfo);
-                markIcon.setImageResource(R.drawable.ic_bookmark_filled);
             }
-            notifyDataSetChanged();
         });
 
 
-        // Open BookDetails on Click
+        // Open BookDetails on Click, handing the book over by ID; while selecting, a click toggles the book
         holder.itemView.setOnClickListener(v -> {
-            Intent i = new Intent(mcontext, BookDetails.class);
-            i.putExtra("title", bookInfo.getTitle());
-            i.putExtra("subtitle", bookInfo.getSubtitle());
-            i.putExtra("authors", bookInfo.getAuthors());
-            i.putExtra("publisher", bookInfo.getPublisher());
-            i.putExtra("publishedDate", bookInfo.getPublishedDate());
-            i.putExtra("description", bookInfo.getDescription());
-            i.putExtra("pageCount", bookInfo.getPageCount());
-            i.putExtra("thumbnail", bookInfo.getThumbnail());
-            i.putExtra("previewLink", bookInfo.getPreviewLink());
-            i.putExtra("infoLink", bookInfo.getInfoLink());
-            i.putExtra("buyLink", bookInfo.getBuyLink());
-            mcontext.startActivity(i);
+            if (actionMode != null) {
+                toggleSelection(bookInfo);
+            } else {
+                mcontext.startActivity(BookDetails.newIntent(mcontext, bookInfo));
+            }
+        });
+
+        // Start selecting books for a bulk action on long press
+        holder.itemView.setOnLongClickListener(v -> {
+            if (actionMode == null && mcontext instanceof AppCompatActivity) {
+                actionMode = ((AppCompatActivity) mcontext).startSupportActionMode(selectionCallback);
+            }
+            if (actionMode == null) {
+                return false;
+            }
+            toggleSelection(bookInfo);
+            return true;
         });
 
         // Set up context menu click
@@ -115,11 +226,191 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
             selectedPosition = holder.getAdapterPosition();
             v.showContextMenu(); // Show the context menu
         });
+        PerfMetrics.stop(PerfMetrics.ROW_BIND, started);
     }
 
     @Override
     public int getItemCount() {
-        return bookInfoArrayList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns a row's stable ID: a 64-bit hash of the book's volume ID, so the same book
+     * always gets the same ID in this adapter. If two volume IDs hash to the same value the
+     * later one takes the next free value instead.
+     */
+    @Override
+    public long getItemId(int position) {
+        String key = rowKey(differ.getCurrentList().get(position), position);
+        Long stableId = stableIds.get(key);
+        if (stableId == null) {
+            long candidate = hash64(key);
+            while (candidate == RecyclerView.NO_ID || usedStableIds.contains(candidate)) {
+                candidate++;
+            }
+            stableId = candidate;
+            stableIds.put(key, stableId);
+            usedStableIds.add(stableId);
+        }
+        return stableId;
+    }
+
+    /**
+     * The key a row's stable ID is derived from: the volume ID, or the position for a book
+     * without one.
+     */
+    private static String rowKey(BookInfo book, int position) {
+        String id = book.getId();
+        return (id == null || id.isEmpty()) ? "#" + position : id;
+    }
+
+    /**
+     * Forgets the stable IDs of rows that left the list, once the differ has applied it.
+     * Emptying the list, as replaceBooks does, forgets them all without looking at the rows.
+     */
+    private void pruneStableIds(List<BookInfo> current) {
+        if (current.isEmpty() || stableIds.isEmpty()) {
+            stableIds.clear();
+            usedStableIds.clear();
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < current.size(); i++) {
+            keys.add(rowKey(current.get(i), i));
+        }
+        Iterator<Map.Entry<String, Long>> entries = stableIds.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            if (!keys.contains(entry.getKey())) {
+                usedStableIds.remove(entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string's characters.
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void bindMarkIcon(ImageView markIcon, String id) {
+        if (isBookMarked(id)) {
+            markIcon.setImageResource(R.drawable.ic_bookmark_filled);
+        } else {
+            markIcon.setImageResource(R.drawable.ic_bookmark_border);
+        }
+    }
+
+    @Override
+    public void onBookMarked(BookInfo book) {
+        notifyMarkChanged(book.getId());
+    }
+
+    @Override
+    public void onBookUnmarked(BookInfo book) {
+        notifyMarkChanged(book.getId());
+    }
+
+    @Override
+    public void onBooksChanged(List<BookInfo> marked, List<BookInfo> unmarked) {
+        // One range rebind is cheaper than searching the list for every book in a large batch
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_MARK);
+    }
+
+    private void bindSelection(BookViewHolder holder, String id) {
+        boolean selected = selectedBooks.containsKey(id);
+        holder.itemView.setActivated(selected);
+        ((CardView) holder.itemView).setCardBackgroundColor(
+                ContextCompat.getColor(mcontext, selected ? R.color.selected_book : R.color.white));
+    }
+
+    /**
+     * Adds a book to or removes it from the selection, ending the selection once it is empty.
+     */
+    private void toggleSelection(BookInfo book) {
+        if (selectedBooks.remove(book.getId()) == null) {
+            selectedBooks.put(book.getId(), book);
+        }
+        notifySelectionChanged(book.getId());
+        if (selectedBooks.isEmpty()) {
+            actionMode.finish();
+        } else {
+            actionMode.setTitle(selectedBooks.size() + " selected");
+        }
+    }
+
+    private void notifySelectionChanged(String id) {
+        List<BookInfo> books = differ.getCurrentList();
+        for (int i = 0; i < books.size(); i++) {
+            if (Objects.equals(books.get(i).getId(), id)) {
+                notifyItemChanged(i, PAYLOAD_SELECTION);
+            }
+        }
+    }
+
+    /**
+     * Drives the contextual action bar shown while books are selected. Each action is
+     * applied to the whole selection as a single repository transaction.
+     */
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.selection_menu, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            int id = item.getItemId();
+            if (id == R.id.action_mark_selected) {
+                markedBooksRepository.markAll(new ArrayList<>(selectedBooks.values()));
+                mode.finish();
+                return true;
+            } else if (id == R.id.action_unmark_selected) {
+                markedBooksRepository.unmarkAll(new ArrayList<>(selectedBooks.keySet()));
+                mode.finish();
+                return true;
+            } else if (id == R.id.action_select_all) {
+                for (BookInfo book : differ.getCurrentList()) {
+                    selectedBooks.put(book.getId(), book);
+                }
+                notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+                mode.setTitle(selectedBooks.size() + " selected");
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            actionMode = null;
+            selectedBooks.clear();
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        }
+    };
+
+    /**
+     * Rebinds the mark icon of every row showing the book.
+     */
+    private void notifyMarkChanged(String id) {
+        List<BookInfo> books = differ.getCurrentList();
+        for (int i = 0; i < books.size(); i++) {
+            if (Objects.equals(books.get(i).getId(), id)) {
+                notifyItemChanged(i, PAYLOAD_MARK);
+            }
+        }
     }
 
     /**
@@ -127,7 +418,7 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
      */
     public class BookViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener {
         TextView nameTV, publisherTV, pageCountTV, dateTV;
-        ImageView bookIV, moreOptionsIV;
+        ImageView bookIV, moreOptionsIV, markIcon;
 
         public BookViewHolder(View itemView) {
             super(itemView);
@@ -137,6 +428,7 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
             dateTV = itemView.findViewById(R.id.idTVDate);
             bookIV = itemView.findViewById(R.id.idIVbook);
             moreOptionsIV = itemView.findViewById(R.id.idIVMoreOptions);
+            markIcon = itemView.findViewById(R.id.idMarkIcon);
 
             // Register context menu for the three-dot button
             moreOptionsIV.setOnCreateContextMenuListener(this);
@@ -150,77 +442,93 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
     }
 
     /**
-     * Updates the book list and refreshes the adapter.
+     * Returns the book shown at a position, or null if the position is out of range.
+     * @param position Adapter position.
+     * @return The book at that position.
+     */
+    public BookInfo getBookAt(int position) {
+        List<BookInfo> books = differ.getCurrentList();
+        return (position >= 0 && position < books.size()) ? books.get(position) : null;
+    }
+
+    /**
+     * Updates the book list. The difference to the current list is computed in the
+     * background and dispatched as fine-grained insert, remove, move and change events.
      * @param newBooks New list of books.
      */
     public void updateBooks(List<BookInfo> newBooks) {
-        bookInfoArrayList.clear();
-        bookInfoArrayList.addAll(newBooks);
-        notifyDataSetChanged();
+        submit(new ArrayList<>(newBooks));
     }
 
     /**
-     * Checks if a book is marked.
-     * @param title Book title.
-     * @return True if marked, false otherwise.
+     * Shows another list without diffing it against the current one, for switching between
+     * orders of the same books: every row is replaced, and only the visible ones are bound.
+     * The list is used as it is and must not be modified afterwards.
+     * @param books The books to show, for example a snapshot from the repository.
      */
-    // Method to handle marking books
-    private boolean isBookMarked(String title) {
-        SharedPreferences preferences = mcontext.getSharedPreferences("MarkedBooksPrefs", Context.MODE_PRIVATE);
-        String json = preferences.getString("markedBooks", "[]");
-        List<BookInfo> bookList = new Gson().fromJson(json, new TypeToken<List<BookInfo>>() {}.getType());
-        return bookList != null && bookList.stream().anyMatch(book -> book.getTitle().equals(title));
+    public void replaceBooks(List<BookInfo> books) {
+        latestBooks = books;
+        // Clearing first makes the differ take the new list as a plain insert, without a diff
+        differ.submitList(null);
+        differ.submitList(books);
     }
 
     /**
-     * Marks a book and saves it to SharedPreferences.
-     * @param book BookInfo object.
+     * Inserts books at a position; only that range is animated in.
+     * @param position Index of the first inserted book.
+     * @param books Books to insert.
      */
-    private void markBook(BookInfo book) {
-        SharedPreferences preferences = mcontext.getSharedPreferences("MarkedBooksPrefs", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        String json = preferences.getString("markedBooks", "[]");
-        List<BookInfo> bookList = new Gson().fromJson(json, new TypeToken<List<BookInfo>>() {}.getType());
-
-        if (bookList == null) {
-            bookList = new ArrayList<>();
-        }
-
-        for (BookInfo b : bookList) {
-            if (b.getTitle().equals(book.getTitle())) {
-                return;
-            }
-        }
+    public void insertBooks(int position, List<BookInfo> books) {
+        List<BookInfo> updated = new ArrayList<>(latestBooks);
+        updated.addAll(position, books);
+        submit(updated);
+    }
 
-        bookList.add(book);
-        editor.putString("markedBooks", new Gson().toJson(bookList));
-        editor.apply();
+    /**
+     * Removes a range of books; only that range is animated out.
+     * @param position Index of the first removed book.
+     * @param count Number of books to remove.
+     */
+    public void removeBooks(int position, int count) {
+        List<BookInfo> updated = new ArrayList<>(latestBooks);
+        updated.subList(position, position + count).clear();
+        submit(updated);
+    }
 
-        // Send broadcast to refresh after marking
-        Intent intent = new Intent("com.example.bookmark.ACTION_REFRESH");
-        mcontext.sendBroadcast(intent);
+    /**
+     * Hands a new list to the differ. The list must not be modified afterwards.
+     */
+    private void submit(List<BookInfo> books) {
+        latestBooks = books;
+        differ.submitList(books);
     }
 
     /**
-     * Removes a book from the marked books list and updates SharedPreferences.
-     * Also sends a broadcast to notify the activity to refresh the book list.
-     * @param title The title of the book to be unmarked.
+     * Checks if a book is marked.
+     * @param id Book volume ID.
+     * @return True if marked, false otherwise.
      */
-    private void unmarkBook(String title) {
-        SharedPreferences preferences = mcontext.getSharedPreferences("MarkedBooksPrefs", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        String json = preferences.getString("markedBooks", "[]");
-        List<BookInfo> bookList = new Gson().fromJson(json, new TypeToken<List<BookInfo>>() {}.getType());
+    private boolean isBookMarked(String id) {
+        return markedBooksRepository.isMarked(id);
+    }
 
-        if (bookList != null) {
-            bookList.removeIf(book -> book.getTitle().equals(title));
-            editor.putString("markedBooks", new Gson().toJson(bookList));
-            editor.apply();
+    /**
+     * Marks a book through the shared repository, which notifies its change listeners.
+     * A summary is marked as it is; SummaryUpgrader replaces it with its full record later.
+     * @param book BookInfo object.
+     */
+    private void markBook(BookInfo book) {
+        BookInfo details = detailLoader.peek(book.getId());
+        markedBooksRepository.mark((details != null) ? details : book);
+    }
 
-            // Send a broadcast to notify the activity to refresh
-            Intent intent = new Intent("com.example.bookmark.ACTION_REFRESH");
-            mcontext.sendBroadcast(intent);
-        }
+    /**
+     * Removes a book from the marked books through the shared repository, which notifies
+     * its change listeners.
+     * @param id The volume ID of the book to be unmarked.
+     */
+    private void unmarkBook(String id) {
+        markedBooksRepository.unmark(id);
     }
 
     /**
@@ -228,8 +536,9 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
      * Opens Android's Sharesheet where the user can choose an app to share the book information.
      */
     public void shareBook() {
-        if (selectedPosition != -1 && selectedPosition < bookInfoArrayList.size()) {
-            BookInfo bookInfo = bookInfoArrayList.get(selectedPosition);
+        List<BookInfo> books = differ.getCurrentList();
+        if (selectedPosition != -1 && selectedPosition < books.size()) {
+            BookInfo bookInfo = books.get(selectedPosition);
             String shareText = "Check out this book: " + bookInfo.getTitle() + "\nPreview here: " + bookInfo.getPreviewLink();
 
             Intent shareIntent = new Intent(Intent.ACTION_SEND);
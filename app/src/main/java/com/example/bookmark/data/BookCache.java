@@ -0,0 +1,140 @@
+package com.example.bookmark.data;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.AppExecutors;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BookCache lets screens hand a book to each other by volume ID instead of copying every
+ * field into an Intent. Books are kept in a small in-memory LRU, so the receiving screen
+ * gets the very same BookInfo object, and the most recently handed-off books are also
+ * written to disk so a screen restored after process death can still find its book.
+ */
+public class BookCache {
+
+    private static final String TAG = "BookMarking";
+    private static final String CACHE_DIR = "book_cache";
+    private static final int MEMORY_ENTRIES = 200;
+    private static final int DISK_ENTRIES = 20;
+
+    private static BookCache instance;
+
+    private final LruCache<String, BookInfo> memory = new LruCache<>(MEMORY_ENTRIES);
+    private final File directory;
+    private final Gson gson = new Gson();
+
+    /**
+     * Returns the shared cache.
+     * @param context Any context; only its cache directory is retained.
+     * @return The process-wide BookCache.
+     */
+    public static synchronized BookCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new BookCache(new File(context.getApplicationContext().getCacheDir(), CACHE_DIR));
+        }
+        return instance;
+    }
+
+    private BookCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Caches a book in memory and, in the background, on disk.
+     * @param book The book; it must have a volume ID.
+     */
+    public void put(BookInfo book) {
+        if (book.getId() == null || book.getId().isEmpty()) {
+            return;
+        }
+        memory.put(book.getId(), book);
+        AppExecutors.diskIO().execute(() -> writeToDisk(book));
+    }
+
+    /**
+     * Looks a book up in memory only, so it is safe to call on the main thread.
+     * @param id The volume ID.
+     * @return The cached book, or null.
+     */
+    public BookInfo get(String id) {
+        return (id != null) ? memory.get(id) : null;
+    }
+
+    /**
+     * Reads a book back from disk and caches it in memory again.
+     * Must be called off the main thread, for example on AppExecutors.diskIO().
+     * @param id The volume ID.
+     * @return The stored book, or null if it is not on disk.
+     */
+    public BookInfo getFromDisk(String id) {
+        if (id == null) {
+            return null;
+        }
+        File file = fileFor(id);
+        if (!file.exists()) {
+            return null;
+        }
+        BookInfo book = null;
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            book = gson.fromJson(reader, BookInfo.class);
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "Could not read cached book: " + id, e);
+        }
+        if (book == null || !id.equals(book.getId())) {
+            return null;
+        }
+        memory.put(id, book);
+        return book;
+    }
+
+    /**
+     * Writes a book to its own file, keeping only the most recently written DISK_ENTRIES.
+     */
+    private void writeToDisk(BookInfo book) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create " + directory);
+            return;
+        }
+        File file = fileFor(book.getId());
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            gson.toJson(book, writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not cache book: " + book.getId(), e);
+            file.delete();
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null && files.length > DISK_ENTRIES) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (int i = 0; i < files.length - DISK_ENTRIES; i++) {
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Volume IDs are URL-safe already; anything else is replaced so the name stays a plain file.
+     */
+    private File fileFor(String id) {
+        return new File(directory, id.replaceAll("[^A-Za-z0-9_-]", "_") + ".json");
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.bookmark.data;
+
+import com.example.bookmark.models.BookInfo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * BookSearchIndex is an in-memory inverted index over the marked books' title, subtitle,
+ * authors, publisher and description. Terms are kept in a sorted dictionary so that every
+ * query word also matches the terms it is a prefix of ("tolk" finds "Tolkien"), and each
+ * term's postings are compact arrays of document numbers and field weights.
+ * <p>
+ * Results must match every query word and are ranked by the summed weight of the fields
+ * they matched in, with whole-word matches counting double and newer marks winning ties.
+ * Books are added and removed one at a time as they are marked and unmarked, and a book
+ * whose details change is updated in place so it keeps its rank among ties; the index is
+ * only rebuilt from scratch on load. This class is not thread-safe; MarkedBooksRepository
+ * guards it with its own lock.
+ * </p>
+ */
+public class BookSearchIndex {
+
+    // Field weights: a hit in the title says far more about a book than one in the description
+    private static final int TITLE_WEIGHT = 8;
+    private static final int AUTHOR_WEIGHT = 6;
+    private static final int SUBTITLE_WEIGHT = 4;
+    private static final int PUBLISHER_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Shorter query words only match whole terms; a one-letter prefix would match most of the index
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * The documents containing one term, in increasing document order, with the summed
+     * weight of the fields the term occurs in.
+     */
+    private static final class Postings {
+        int[] docs = new int[2];
+        short[] weights = new short[2];
+        int size;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            // Documents are numbered in the order they are added, so new books append; only
+            // an updated book's document can land in the middle
+            int index = size;
+            if (size > 0 && docs[size - 1] > doc) {
+                index = -Arrays.binarySearch(docs, 0, size, doc) - 1;
+                System.arraycopy(docs, index, docs, index + 1, size - index);
+                System.arraycopy(weights, index, weights, index + 1, size - index);
+            }
+            docs[index] = doc;
+            weights[index] = (short) weight;
+            size++;
+        }
+
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) {
+                System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+                System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> docsByKey = new HashMap<>();
+    private final List<BookInfo> books = new ArrayList<>(); // by document number, null once removed
+
+    /**
+     * Replaces the index contents with the given books.
+     * @param books Books keyed by their marked-store key.
+     */
+    public void reset(Map<String, BookInfo> books) {
+        terms.clear();
+        docsByKey.clear();
+        this.books.clear();
+        for (Map.Entry<String, BookInfo> book : books.entrySet()) {
+            add(book.getKey(), book.getValue());
+        }
+    }
+
+    /**
+     * Indexes a book, replacing any book with the same key.
+     * @param key The book's marked-store key.
+     * @param book The book.
+     */
+    public void add(String key, BookInfo book) {
+        remove(key);
+        int doc = books.size();
+        books.add(book);
+        docsByKey.put(key, doc);
+        addTerms(doc, book);
+    }
+
+    /**
+     * Re-indexes a book whose record has changed, for example when a summary is replaced
+     * by its full record. It keeps its document number, so it keeps its place among books
+     * that score the same. A book that is not indexed yet is added.
+     * @param key The book's marked-store key.
+     * @param book The book's new record.
+     */
+    public void update(String key, BookInfo book) {
+        Integer doc = docsByKey.get(key);
+        if (doc == null) {
+            add(key, book);
+            return;
+        }
+        removeTerms(doc, books.get(doc));
+        books.set(doc, book);
+        addTerms(doc, book);
+    }
+
+    /**
+     * Removes a book from the index. Its terms are derived from the book again, so a book
+     * must not be modified while it is indexed.
+     * @param key The book's marked-store key.
+     */
+    public void remove(String key) {
+        Integer doc = docsByKey.remove(key);
+        if (doc == null) {
+            return;
+        }
+        removeTerms(doc, books.set(doc, null));
+        compactIfSparse();
+    }
+
+    private void addTerms(int doc, BookInfo book) {
+        for (Map.Entry<String, Integer> term : termWeights(book).entrySet()) {
+            Postings postings = terms.get(term.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term.getKey(), postings);
+            }
+            postings.add(doc, term.getValue());
+        }
+    }
+
+    private void removeTerms(int doc, BookInfo book) {
+        for (String term : termWeights(book).keySet()) {
+            Postings postings = terms.get(term);
+            if (postings != null) {
+                postings.remove(doc);
+                if (postings.size == 0) {
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the books matching every word of a query, best match first.
+     * @param query The words to look for; each also matches terms it is a prefix of.
+     * @return The matching books, or an empty list if the query has no words.
+     */
+    public List<BookInfo> search(String query) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int docCount = books.size();
+        int[] scores = new int[docCount];
+        // How many query words each document has matched so far; only documents that
+        // matched every earlier word are still candidates
+        int[] matched = new int[docCount];
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            SortedMap<String, Postings> matches = (word.length() >= MIN_PREFIX_LENGTH)
+                    ? terms.subMap(word, word + Character.MAX_VALUE)
+                    : terms.subMap(word, true, word, true);
+            for (Map.Entry<String, Postings> match : matches.entrySet()) {
+                int boost = match.getKey().length() == word.length() ? 2 : 1;
+                Postings postings = match.getValue();
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (matched[doc] == w) {
+                        matched[doc] = w + 1;
+                    } else if (matched[doc] != w + 1) {
+                        continue;
+                    }
+                    scores[doc] += postings.weights[i] * boost;
+                }
+            }
+        }
+
+        List<Integer> hits = new ArrayList<>();
+        for (int doc = 0; doc < docCount; doc++) {
+            if (matched[doc] == words.size() && books.get(doc) != null) {
+                hits.add(doc);
+            }
+        }
+        hits.sort((a, b) -> (scores[a] != scores[b]) ? Integer.compare(scores[b], scores[a]) : Integer.compare(b, a));
+
+        List<BookInfo> results = new ArrayList<>(hits.size());
+        for (int doc : hits) {
+            results.add(books.get(doc));
+        }
+        return results;
+    }
+
+    /**
+     * Renumbers the documents once more than half of the numbers belong to removed books,
+     * so the per-query score arrays stay proportional to the number of marked books.
+     */
+    private void compactIfSparse() {
+        if (books.size() < 64 || docsByKey.size() * 2 > books.size()) {
+            return;
+        }
+        // Keep the documents in their original relative order, which ranks newer marks first
+        TreeMap<Integer, String> keysByDoc = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : docsByKey.entrySet()) {
+            keysByDoc.put(entry.getValue(), entry.getKey());
+        }
+        Map<String, BookInfo> live = new LinkedHashMap<>();
+        for (Map.Entry<Integer, String> entry : keysByDoc.entrySet()) {
+            live.put(entry.getValue(), books.get(entry.getKey()));
+        }
+        reset(live);
+    }
+
+    /**
+     * Collects every term of a book with the summed weight of the fields it occurs in.
+     */
+    private static Map<String, Integer> termWeights(BookInfo book) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, book.getTitle(), TITLE_WEIGHT);
+        addField(weights, book.getSubtitle(), SUBTITLE_WEIGHT);
+        if (book.getAuthors() != null) {
+            Set<String> authorTerms = new LinkedHashSet<>();
+            for (String author : book.getAuthors()) {
+                authorTerms.addAll(tokenize(author));
+            }
+            for (String term : authorTerms) {
+                weights.merge(term, AUTHOR_WEIGHT, Integer::sum);
+            }
+        }
+        addField(weights, book.getPublisher(), PUBLISHER_WEIGHT);
+        addField(weights, book.getDescription(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        // Each field counts once per term, however often the term repeats in it
+        for (String term : new LinkedHashSet<>(tokenize(text))) {
+            weights.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, with accents removed so
+     * that accented and unaccented spellings of a name find each other.
+     * @param text The text, possibly null.
+     * @return The words in order, including repeats.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.bookmark.data;
+
+import android.util.Log;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * JournalWriter writes MarkedBooksRepository's changes to its MarkedBooksJournal behind
+ * the scenes. Changes are queued in memory and appended together after a short delay, so a
+ * burst of marks and unmarks costs one write; repeated changes to the same book are
+ * coalesced so only the last one is written. After each append the journal is compacted
+ * if it has grown too far past the live books. A batch that cannot be written is put back
+ * in the queue and retried, waiting twice as long after each failure in a row.
+ * <p>
+ * Writes run on the given executor, which must run one task at a time so the journal is
+ * never written concurrently. Queuing is safe from any thread.
+ * </p>
+ */
+class JournalWriter {
+
+    private static final String TAG = "BookMarking";
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+    // Longest a flush blocks its caller, well inside the main thread's ANR limit
+    private static final long FLUSH_TIMEOUT_MILLIS = 1000;
+
+    private final MarkedBooksJournal journal;
+    private final ScheduledExecutorService executor;
+    private final long delayMillis;
+    private final Supplier<Collection<BookInfo>> liveBooks;
+
+    // Changes not yet in the journal, oldest first: key -> book to put, or null to remove
+    private final LinkedHashMap<String, BookInfo> pendingWrites = new LinkedHashMap<>();
+    // Keys in pendingWrites whose put only replaces the details of a book already in the journal
+    private final Set<String> pendingUpdates = new HashSet<>();
+    private boolean writeScheduled;
+    // Delay before the next retry after a failed write, or 0 if the last write succeeded
+    private long retryDelayMillis;
+
+    /**
+     * Constructor for JournalWriter.
+     * @param journal The journal to append to.
+     * @param executor The single-threaded executor that writes run on.
+     * @param delayMillis How long changes are collected before they are written.
+     * @param liveBooks Returns a snapshot of the marked books, for compaction.
+     */
+    JournalWriter(MarkedBooksJournal journal, ScheduledExecutorService executor, long delayMillis,
+                  Supplier<Collection<BookInfo>> liveBooks) {
+        this.journal = journal;
+        this.executor = executor;
+        this.delayMillis = delayMillis;
+        this.liveBooks = liveBooks;
+    }
+
+    /**
+     * Queues a change. Changes to the same book are coalesced so only the last one is
+     * written, at the position of the latest change, which matches the order of the
+     * repository's in-memory map.
+     * @param key The book's key.
+     * @param book The book to put, or null to remove it.
+     */
+    synchronized void enqueueWrite(String key, BookInfo book) {
+        pendingWrites.remove(key);
+        pendingUpdates.remove(key);
+        pendingWrites.put(key, book);
+        scheduleWrite();
+    }
+
+    /**
+     * Queues new details for a marked book. They are journaled as an update, which keeps the
+     * book's position when replayed, or folded into the book's queued put if it has one.
+     * @param key The book's key.
+     * @param book The book's new record.
+     */
+    synchronized void enqueueUpdate(String key, BookInfo book) {
+        if (!pendingWrites.containsKey(key)) {
+            pendingUpdates.add(key);
+        }
+        pendingWrites.put(key, book);
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        scheduleWrite(delayMillis);
+    }
+
+    private void scheduleWrite(long delay) {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            executor.schedule(this::writePending, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes any queued changes now instead of waiting for the delay, and waits up to a
+     * second for the write to finish. The write that was already scheduled then finds
+     * nothing left to do. Must not be called on the executor's own thread.
+     * @return True if the changes were written, false if the write failed or was still
+     * waiting behind other disk work when the time ran out; it then completes later.
+     */
+    boolean flush() {
+        Future<?> write = executor.submit(this::writePending);
+        try {
+            write.get(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Marked books are still being written after " + FLUSH_TIMEOUT_MILLIS + " ms");
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Could not flush marked books", e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        synchronized (this) {
+            return retryDelayMillis == 0;
+        }
+    }
+
+    /**
+     * Appends the queued changes to the journal as one batch, on the executor.
+     */
+    private void writePending() {
+        Map<String, BookInfo> batch;
+        Set<String> updates;
+        synchronized (this) {
+            writeScheduled = false;
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(pendingWrites);
+            updates = new HashSet<>(pendingUpdates);
+            pendingWrites.clear();
+            pendingUpdates.clear();
+        }
+        // Taken after the batch, so it may already hold changes that are queued again;
+        // rewriting those early is harmless as replaying them later gives the same result
+        Collection<BookInfo> books = liveBooks.get();
+        long started = PerfMetrics.start(PerfMetrics.MARKED_SAVE);
+        boolean appended = false;
+        try {
+            journal.appendChanges(batch, updates);
+            appended = true;
+            synchronized (this) {
+                retryDelayMillis = 0;
+            }
+            journal.compactIfNeeded(books);
+        } catch (IOException e) {
+            if (appended) {
+                // The batch is in the journal; compaction is tried again after the next write
+                Log.e(TAG, "Could not compact marked books journal", e);
+            } else {
+                Log.e(TAG, "Could not persist " + batch.size() + " marked book changes, will retry", e);
+                requeue(batch, updates);
+            }
+        } finally {
+            PerfMetrics.stop(PerfMetrics.MARKED_SAVE, started);
+        }
+    }
+
+    /**
+     * Puts a batch that could not be written back in front of the changes queued since it
+     * was taken, and schedules a retry. A book that was changed again in the meantime keeps
+     * its newer change.
+     * @param batch The changes that were not written.
+     * @param updates The keys in batch that were updates.
+     */
+    private synchronized void requeue(Map<String, BookInfo> batch, Set<String> updates) {
+        LinkedHashMap<String, BookInfo> requeued = new LinkedHashMap<>();
+        for (Map.Entry<String, BookInfo> change : batch.entrySet()) {
+            String key = change.getKey();
+            if (!pendingWrites.containsKey(key)) {
+                requeued.put(key, change.getValue());
+                if (updates.contains(key)) {
+                    pendingUpdates.add(key);
+                }
+            } else if (pendingUpdates.contains(key) && !updates.contains(key)) {
+                // Only new details arrived since: they go into the unwritten put, which keeps its place
+                requeued.put(key, pendingWrites.remove(key));
+                pendingUpdates.remove(key);
+            }
+        }
+        requeued.putAll(pendingWrites);
+        pendingWrites.clear();
+        pendingWrites.putAll(requeued);
+        retryDelayMillis = (retryDelayMillis == 0)
+                ? delayMillis * 2 : Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        scheduleWrite(retryDelayMillis);
+    }
+}
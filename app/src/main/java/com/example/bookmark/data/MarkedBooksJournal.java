@@ -0,0 +1,242 @@
+package com.example.bookmark.data;
+
+import com.example.bookmark.models.BookInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MarkedBooksJournal is an append-only, line-per-operation store for marked books.
+ * Every mark appends a "put" line and every unmark appends a "remove" line, so a batch of
+ * changes only writes a few small records instead of the whole library. New details for a
+ * book that is already marked are an "update" line. On load the lines are replayed in order:
+ * a put moves its book to the end, as it is marked again, while an update keeps its place. Once enough superseded lines pile up the journal is compacted by
+ * rewriting just the live books to a temporary file and atomically renaming it into place.
+ */
+public class MarkedBooksJournal {
+
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_UPDATE = "update";
+
+    // Compact once the journal holds this many lines more than there are live books
+    private static final int COMPACTION_SLACK = 64;
+
+    private final File file;
+    private final Gson gson = new Gson();
+    private int entryCount;
+    // True after an append failed, when the file may end in part of a record
+    private boolean appendFailed;
+
+    /**
+     * A single journal line. Only one of book or key is set depending on the operation.
+     */
+    private static class Entry {
+        String op;
+        BookInfo book;
+        String key;
+
+        Entry(String op, BookInfo book, String key) {
+            this.op = op;
+            this.book = book;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Constructor for MarkedBooksJournal.
+     * @param file The journal file; it is created on the first write.
+     */
+    public MarkedBooksJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journal into a map of live books keyed by MarkedBooksRepository.keyOf.
+     * A truncated or corrupt line (for example from a crash mid-write) is skipped, and the
+     * journal is then rewritten so later appends do not land on the end of the broken line.
+     * @return The marked books in the order they were first marked.
+     * @throws IOException If the journal exists but cannot be read.
+     */
+    public LinkedHashMap<String, BookInfo> load() throws IOException {
+        LinkedHashMap<String, BookInfo> books = new LinkedHashMap<>();
+        boolean corrupt = false;
+        entryCount = 0;
+        if (!file.exists()) {
+            return books;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = gson.fromJson(line, Entry.class);
+                } catch (JsonParseException e) {
+                    corrupt = true;
+                    continue;
+                }
+                if (entry == null || entry.op == null) {
+                    corrupt = true;
+                    continue;
+                }
+                entryCount++;
+                if (OP_PUT.equals(entry.op) && entry.book != null) {
+                    String key = MarkedBooksRepository.keyOf(entry.book);
+                    if (key != null) {
+                        // A re-mark moves the book to the end, even when its removal was
+                        // coalesced away in the same batch
+                        books.remove(key);
+                        books.put(key, entry.book);
+                    }
+                } else if (OP_UPDATE.equals(entry.op) && entry.book != null) {
+                    String key = MarkedBooksRepository.keyOf(entry.book);
+                    if (key != null) {
+                        books.put(key, entry.book);
+                    }
+                } else if (OP_REMOVE.equals(entry.op) && entry.key != null) {
+                    if (books.remove(entry.key) == null) {
+                        removeByTitle(books, entry.key);
+                    }
+                }
+            }
+        }
+        if (corrupt) {
+            rewrite(books.values());
+        }
+        return books;
+    }
+
+    /**
+     * Removals written before books were keyed by volume ID carry the title instead.
+     */
+    private static void removeByTitle(LinkedHashMap<String, BookInfo> books, String title) {
+        Iterator<BookInfo> iterator = books.values().iterator();
+        while (iterator.hasNext()) {
+            BookInfo book = iterator.next();
+            if ((book.getId() == null || book.getId().isEmpty()) && title.equals(book.getTitle())) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the books stored by older versions, as one JSON array, to the books loaded from
+     * the journal and rewrites the journal with the result. Books already loaded win.
+     * @param legacyJson The legacy JSON array of books.
+     * @param books The loaded books; the legacy ones are added to the end.
+     * @throws IOException If the journal cannot be rewritten.
+     */
+    public void migrateLegacy(String legacyJson, Map<String, BookInfo> books) throws IOException {
+        Type type = new TypeToken<List<BookInfo>>() {}.getType();
+        List<BookInfo> legacyBooks = gson.fromJson(legacyJson, type);
+        if (legacyBooks != null) {
+            for (BookInfo book : legacyBooks) {
+                String key = (book != null) ? MarkedBooksRepository.keyOf(book) : null;
+                if (key != null && !books.containsKey(key)) {
+                    books.put(key, book);
+                }
+            }
+        }
+        rewrite(books.values());
+    }
+
+    /**
+     * Appends a batch of changes with a single write: a "put" record for each book that was
+     * marked and a "remove" record for each key mapped to null.
+     * @param changes The changes in the order they should be replayed.
+     * @throws IOException If the records cannot be written.
+     */
+    public void appendChanges(Map<String, BookInfo> changes) throws IOException {
+        appendChanges(changes, Collections.emptySet());
+    }
+
+    /**
+     * Appends a batch of changes with a single write, as an "update" record for each book
+     * whose key is in updates. After a failed append the batch starts on a new line, so a
+     * record torn by the failure is skipped on load instead of swallowing the next one.
+     * @param changes The changes in the order they should be replayed.
+     * @param updates The keys of changes that only replace an already marked book's details.
+     * @throws IOException If the records cannot be written.
+     */
+    public void appendChanges(Map<String, BookInfo> changes, Set<String> updates) throws IOException {
+        StringBuilder lines = new StringBuilder(appendFailed ? "\n" : "");
+        for (Map.Entry<String, BookInfo> change : changes.entrySet()) {
+            Entry entry;
+            if (change.getValue() == null) {
+                entry = new Entry(OP_REMOVE, null, change.getKey());
+            } else {
+                String op = updates.contains(change.getKey()) ? OP_UPDATE : OP_PUT;
+                entry = new Entry(op, change.getValue(), null);
+            }
+            lines.append(gson.toJson(entry)).append('\n');
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(lines.toString());
+        } catch (IOException e) {
+            appendFailed = true;
+            throw e;
+        }
+        appendFailed = false;
+        entryCount += changes.size();
+    }
+
+    /**
+     * Rewrites the journal if superseded records outnumber the live books by enough.
+     * @param liveBooks The books that are currently marked.
+     * @throws IOException If the compacted journal cannot be written.
+     */
+    public void compactIfNeeded(Collection<BookInfo> liveBooks) throws IOException {
+        if (entryCount > liveBooks.size() * 2 + COMPACTION_SLACK) {
+            rewrite(liveBooks);
+        }
+    }
+
+    /**
+     * Replaces the journal with one "put" record per live book.
+     * The new content is written to a temporary file first so a crash never leaves a
+     * half-written journal behind.
+     * @param liveBooks The books that are currently marked.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void rewrite(Collection<BookInfo> liveBooks) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (BookInfo book : liveBooks) {
+                gson.toJson(new Entry(OP_PUT, book, null), writer);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace journal " + file);
+        }
+        entryCount = liveBooks.size();
+        appendFailed = false;
+    }
+}
@@ -0,0 +1,587 @@
+package com.example.bookmark.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.PerfMetrics;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MarkedBooksRepository is the single, process-wide owner of the user's marked books.
+ * The books are loaded once, on the disk thread, from an append-only MarkedBooksJournal and
+ * kept in memory as a
+ * map keyed by Google Books volume ID, so mark checks are O(1) hash lookups, different
+ * editions that share a title no longer collide, and each mark or unmark only appends a
+ * single record to disk. All mark and unmark operations should go through this class.
+ * <p>
+ * Marking and unmarking update memory immediately; the journal records are written behind
+ * on the single disk thread, with bursts of changes coalesced into one batched append.
+ * </p>
+ * <p>
+ * Screens observe changes by registering a ChangeListener, which is told about each book
+ * that is marked or unmarked on the main thread, so they can apply the change to their
+ * list instead of reloading it. Bulk operations (markAll, unmarkAll and importFrom) take
+ * the lock once, queue a single journal batch and send a single onBooksChanged event.
+ * </p>
+ * <p>
+ * Until loading has finished the repository only holds books marked in the meantime; the
+ * loaded books are then announced with one onBooksChanged event, so screens opened early
+ * fill in once they arrive.
+ * </p>
+ */
+public class MarkedBooksRepository {
+
+    private static final String TAG = "BookMarking";
+    private static final String JOURNAL_FILE = "marked_books.jsonl";
+
+    // Legacy storage: the whole library as one JSON string in SharedPreferences
+    private static final String PREFS_NAME = "MarkedBooksPrefs";
+    private static final String KEY_MARKED_BOOKS = "markedBooks";
+
+    // Google Books links carry the volume ID as the "id" query parameter
+    private static final Pattern LINK_ID_PATTERN = Pattern.compile("[?&]id=([^&#]+)");
+    private static final String TITLE_KEY_PREFIX = "title:";
+
+    /**
+     * Receives fine-grained changes to the marked books, always on the main thread.
+     */
+    public interface ChangeListener {
+        void onBookMarked(BookInfo book);
+
+        void onBookUnmarked(BookInfo book);
+
+        /**
+         * Called once for a bulk operation instead of once per book.
+         * @param marked The books that were marked, possibly empty.
+         * @param unmarked The books that were unmarked, possibly empty.
+         */
+        void onBooksChanged(List<BookInfo> marked, List<BookInfo> unmarked);
+    }
+
+    private static MarkedBooksRepository instance;
+
+    // Journal writes are batched: changes made within this window share one append
+    private static final long WRITE_DELAY_MILLIS = 250;
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final MarkedBooksJournal journal;
+    // Runs listener notifications; the main thread outside of tests
+    private final Executor notifier;
+    private final SortedBookIndex sortedIndex = new SortedBookIndex();
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+
+    // Marked books in insertion order, keyed by volume ID
+    private Map<String, BookInfo> markedBooks = new LinkedHashMap<>();
+    private boolean loaded;
+
+    // Writes changes behind on the disk thread; the journal itself is only touched there,
+    // by load first
+    private final JournalWriter journalWriter;
+
+    /**
+     * Returns the shared repository. On first use it starts loading the marked books on
+     * AppExecutors.diskIO() and returns without waiting; see isLoaded.
+     * @param context Any context; the application context is retained.
+     * @return The process-wide MarkedBooksRepository.
+     */
+    public static synchronized MarkedBooksRepository getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            MarkedBooksRepository repository = new MarkedBooksRepository(
+                    new MarkedBooksJournal(new File(appContext.getFilesDir(), JOURNAL_FILE)),
+                    AppExecutors.diskIO(), MarkedBooksRepository::postToMainThread);
+            // Queued ahead of any journal write, which all run on the same thread
+            AppExecutors.diskIO().execute(() ->
+                    repository.load(appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)));
+            instance = repository;
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for a repository over the given journal. Nothing is read until load is called.
+     * @param journal The journal the marked books are stored in.
+     * @param diskIO The single-threaded executor journal writes run on.
+     * @param notifier Runs the change listener notifications.
+     */
+    MarkedBooksRepository(MarkedBooksJournal journal, ScheduledExecutorService diskIO, Executor notifier) {
+        this.journal = journal;
+        this.notifier = notifier;
+        journalWriter = new JournalWriter(journal, diskIO, WRITE_DELAY_MILLIS, this::snapshotBooks);
+    }
+
+    /**
+     * Loads the marked books from the journal, migrates data left by older versions and
+     * builds the indexes, then tells the listeners about the loaded books with one
+     * onBooksChanged event. Books marked before loading finished stay marked, after the
+     * loaded ones. Must run on the disk thread, before any journal write.
+     * @param legacyPrefs Preferences that may hold books saved by older versions, or null.
+     */
+    void load(SharedPreferences legacyPrefs) {
+        long started = PerfMetrics.start(PerfMetrics.MARKED_LOAD);
+        LinkedHashMap<String, BookInfo> books = new LinkedHashMap<>();
+        try {
+            books = journal.load();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read marked books journal", e);
+        }
+        if (legacyPrefs != null) {
+            migrateLegacyPrefs(legacyPrefs, books);
+        }
+        migrateTitleKeys(books);
+        List<BookInfo> loadedBooks = new ArrayList<>(books.values());
+        synchronized (this) {
+            // Marks made meanwhile are queued as journal puts, which move a book to the end
+            for (Map.Entry<String, BookInfo> early : markedBooks.entrySet()) {
+                books.remove(early.getKey());
+                books.put(early.getKey(), early.getValue());
+            }
+            markedBooks = books;
+            sortedIndex.reset(markedBooks);
+            searchIndex.reset(markedBooks);
+            loaded = true;
+        }
+        PerfMetrics.stop(PerfMetrics.MARKED_LOAD, started);
+        if (!loadedBooks.isEmpty()) {
+            dispatchBulk(loadedBooks, new ArrayList<>());
+        }
+    }
+
+    /**
+     * @return True once the marked books have been loaded from disk.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the key that identifies a book in the marked store: its volume ID.
+     * Books saved before IDs were recorded fall back to the ID embedded in their
+     * Google Books links, and only as a last resort to their title.
+     * @param book The book.
+     * @return The key, or null if the book cannot be identified.
+     */
+    static String keyOf(BookInfo book) {
+        if (book.getId() != null && !book.getId().isEmpty()) {
+            return book.getId();
+        }
+        String linkId = idFromLink(book.getInfoLink());
+        if (linkId == null) {
+            linkId = idFromLink(book.getPreviewLink());
+        }
+        if (linkId != null) {
+            return linkId;
+        }
+        return (book.getTitle() != null) ? TITLE_KEY_PREFIX + book.getTitle() : null;
+    }
+
+    /**
+     * Extracts the volume ID from a Google Books link such as "books?id=abc123&hl=en".
+     */
+    private static String idFromLink(String link) {
+        if (link == null) {
+            return null;
+        }
+        Matcher matcher = LINK_ID_PATTERN.matcher(link);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Assigns a volume ID to books that were marked before IDs were stored and rewrites
+     * the journal once so every record, including removals, is keyed by ID from now on.
+     */
+    private void migrateTitleKeys(Map<String, BookInfo> books) {
+        boolean migrated = false;
+        for (Map.Entry<String, BookInfo> entry : books.entrySet()) {
+            BookInfo book = entry.getValue();
+            if (book.getId() == null || book.getId().isEmpty()) {
+                book.setId(entry.getKey());
+                migrated = true;
+            }
+        }
+        if (!migrated) {
+            return;
+        }
+        try {
+            journal.rewrite(books.values());
+            Log.d(TAG, "Assigned IDs to title-keyed marked books");
+        } catch (IOException e) {
+            Log.e(TAG, "Could not rewrite journal with book IDs", e);
+        }
+    }
+
+    /**
+     * Moves books stored by older versions as a single SharedPreferences JSON string into
+     * the journal, then removes the old value so the migration only happens once.
+     */
+    private void migrateLegacyPrefs(SharedPreferences preferences, Map<String, BookInfo> books) {
+        String json = preferences.getString(KEY_MARKED_BOOKS, null);
+        if (json == null) {
+            return;
+        }
+        try {
+            journal.migrateLegacy(json, books);
+            preferences.edit().remove(KEY_MARKED_BOOKS).apply();
+            Log.d(TAG, "Migrated " + books.size() + " marked books to the journal");
+        } catch (IOException e) {
+            // Keep the legacy value so the migration is retried next launch
+            Log.e(TAG, "Could not migrate marked books", e);
+        }
+    }
+
+    /**
+     * Checks if a book is marked.
+     * @param id Book volume ID.
+     * @return True if marked, false otherwise.
+     */
+    public synchronized boolean isMarked(String id) {
+        return id != null && markedBooks.containsKey(id);
+    }
+
+    /**
+     * Marks a book in memory, queues it to be appended to the journal and notifies the
+     * change listeners. Books that are already marked are ignored. The book's marked time
+     * is set to now.
+     * @param book The book to be marked.
+     * @return True if the book was added, false if it was already marked.
+     */
+    public boolean mark(BookInfo book) {
+        synchronized (this) {
+            String key = (book != null) ? keyOf(book) : null;
+            if (key == null || markedBooks.containsKey(key)) {
+                return false;
+            }
+            if (book.getId() == null || book.getId().isEmpty()) {
+                book.setId(key);
+            }
+            book.setMarkedTime(System.currentTimeMillis());
+            markedBooks.put(key, book);
+            sortedIndex.add(key, book);
+            searchIndex.add(key, book);
+            journalWriter.enqueueWrite(key, book);
+        }
+        dispatch(() -> {
+            for (ChangeListener listener : listeners) {
+                listener.onBookMarked(book);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Unmarks a book in memory, queues the removal to be appended to the journal and
+     * notifies the change listeners.
+     * @param id The volume ID of the book to be unmarked.
+     * @return True if the book was removed, false if it was not marked.
+     */
+    public boolean unmark(String id) {
+        BookInfo book;
+        synchronized (this) {
+            book = (id != null) ? markedBooks.remove(id) : null;
+            if (book == null) {
+                return false;
+            }
+            sortedIndex.remove(id);
+            searchIndex.remove(id);
+            journalWriter.enqueueWrite(id, null);
+        }
+        dispatch(() -> {
+            for (ChangeListener listener : listeners) {
+                listener.onBookUnmarked(book);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Replaces a marked summary with its full record once that has been loaded, so the
+     * marked copy gains its description and links and the search index covers them.
+     * The book keeps its place and marked time; nothing happens if it is not marked or
+     * is already a full record.
+     * @param details The full record.
+     * @return True if the marked copy was replaced.
+     */
+    public boolean updateDetails(BookInfo details) {
+        synchronized (this) {
+            String key = details.getId();
+            BookInfo marked = (key != null) ? markedBooks.get(key) : null;
+            if (marked == null || !marked.isSummary() || details.isSummary()) {
+                return false;
+            }
+            details.setMarkedTime(marked.getMarkedTime());
+            markedBooks.put(key, details); // an existing key keeps its position
+            sortedIndex.add(key, details);
+            searchIndex.update(key, details);
+            journalWriter.enqueueUpdate(key, details);
+        }
+        return true;
+    }
+
+    /**
+     * Marks many books as one transaction: memory and the indexes are updated under a
+     * single lock, the journal receives one batched append and listeners are notified once.
+     * Books that are already marked, or cannot be identified, are skipped. The newly marked
+     * books all get the current time as their marked time.
+     * @param books The books to be marked.
+     * @return The books that were newly marked.
+     */
+    public List<BookInfo> markAll(Collection<BookInfo> books) {
+        return markAll(books, false);
+    }
+
+    /**
+     * Marks many books as one transaction.
+     * @param books The books to be marked.
+     * @param keepMarkedTimes True to keep the marked time a book already has, as imported
+     *                        books do; only books without one get the current time.
+     * @return The books that were newly marked.
+     */
+    private List<BookInfo> markAll(Collection<BookInfo> books, boolean keepMarkedTimes) {
+        List<BookInfo> marked = new ArrayList<>();
+        long markedTime = System.currentTimeMillis();
+        synchronized (this) {
+            for (BookInfo book : books) {
+                String key = (book != null) ? keyOf(book) : null;
+                if (key == null || markedBooks.containsKey(key)) {
+                    continue;
+                }
+                if (book.getId() == null || book.getId().isEmpty()) {
+                    book.setId(key);
+                }
+                if (!keepMarkedTimes || book.getMarkedTime() == 0) {
+                    book.setMarkedTime(markedTime);
+                }
+                markedBooks.put(key, book);
+                sortedIndex.add(key, book);
+                searchIndex.add(key, book);
+                journalWriter.enqueueWrite(key, book);
+                marked.add(book);
+            }
+        }
+        if (!marked.isEmpty()) {
+            dispatchBulk(marked, new ArrayList<>());
+        }
+        return marked;
+    }
+
+    /**
+     * Unmarks many books as one transaction, like markAll.
+     * @param ids The volume IDs of the books to be unmarked.
+     * @return The books that were unmarked; IDs that were not marked are skipped.
+     */
+    public List<BookInfo> unmarkAll(Collection<String> ids) {
+        List<BookInfo> unmarked = new ArrayList<>();
+        synchronized (this) {
+            for (String id : ids) {
+                BookInfo book = (id != null) ? markedBooks.remove(id) : null;
+                if (book == null) {
+                    continue;
+                }
+                sortedIndex.remove(id);
+                searchIndex.remove(id);
+                journalWriter.enqueueWrite(id, null);
+                unmarked.add(book);
+            }
+        }
+        if (!unmarked.isEmpty()) {
+            dispatchBulk(new ArrayList<>(), unmarked);
+        }
+        return unmarked;
+    }
+
+    private void dispatchBulk(List<BookInfo> marked, List<BookInfo> unmarked) {
+        dispatch(() -> {
+            for (ChangeListener listener : listeners) {
+                listener.onBooksChanged(marked, unmarked);
+            }
+        });
+    }
+
+    /**
+     * Streams every marked book to a JSON Lines document, one book per line in the order
+     * they were marked. Only a snapshot of the references is taken under the lock; the
+     * books are serialized one at a time straight to the stream. Must be called off the
+     * main thread, for example on AppExecutors.diskIO().
+     * @param out The stream to write to; it is flushed but not closed.
+     * @return The number of books written.
+     * @throws IOException If the stream cannot be written.
+     */
+    public int exportTo(OutputStream out) throws IOException {
+        List<BookInfo> books;
+        synchronized (this) {
+            books = new ArrayList<>(markedBooks.values());
+        }
+        Gson gson = new Gson();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (BookInfo book : books) {
+            gson.toJson(book, BookInfo.class, writer);
+            writer.write('\n');
+        }
+        writer.flush();
+        return books.size();
+    }
+
+    /**
+     * Reads a JSON Lines document written by exportTo, line by line, and marks every book
+     * in it with a single markAll transaction. Books keep the marked time they were exported
+     * with, so the marked orders survive the round trip. Blank and unreadable lines are skipped.
+     * Must be called off the main thread, for example on AppExecutors.diskIO().
+     * @param in The stream to read from; it is not closed.
+     * @return The books that were newly marked.
+     * @throws IOException If the stream cannot be read.
+     */
+    public List<BookInfo> importFrom(InputStream in) throws IOException {
+        Gson gson = new Gson();
+        List<BookInfo> books = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int skipped = 0;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                BookInfo book = gson.fromJson(line, BookInfo.class);
+                if (book != null) {
+                    books.add(book);
+                }
+            } catch (JsonParseException e) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            Log.w(TAG, "Skipped " + skipped + " unreadable lines while importing marked books");
+        }
+        return markAll(books, true);
+    }
+
+    /**
+     * Writes any queued changes now instead of waiting for the batching delay, blocking for
+     * at most a second until they are on disk. Screens call this from onStop so changes
+     * reach disk before the process may be killed.
+     */
+    public void flush() {
+        journalWriter.flush();
+    }
+
+    /**
+     * @return A copy of the marked books, for compacting the journal.
+     */
+    private synchronized List<BookInfo> snapshotBooks() {
+        return new ArrayList<>(markedBooks.values());
+    }
+
+    /**
+     * Registers a listener for marked and unmarked books.
+     * @param listener The listener; remove it with removeChangeListener when its screen goes away.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with addChangeListener.
+     * @param listener The listener.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void dispatch(Runnable notification) {
+        notifier.execute(notification);
+    }
+
+    /**
+     * Runs a notification on the main thread: immediately when already there, so a screen
+     * that marks a book sees the change before its click handler returns.
+     */
+    private static void postToMainThread(Runnable notification) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notification.run();
+        } else {
+            AppExecutors.mainThread().execute(notification);
+        }
+    }
+
+    /**
+     * Returns a marked book.
+     * @param id The book's volume ID.
+     * @return The stored BookInfo itself, or null if the book is not marked.
+     */
+    public synchronized BookInfo getMarkedBook(String id) {
+        return (id != null) ? markedBooks.get(id) : null;
+    }
+
+    /**
+     * @return The number of marked books.
+     */
+    public synchronized int getMarkedCount() {
+        return markedBooks.size();
+    }
+
+    /**
+     * Finds a marked book's position in one of the orders kept by SortedBookIndex.
+     * @param id The book's volume ID.
+     * @param order One of the SortedBookIndex order constants.
+     * @return The position in getMarkedBooks(order), or -1 if the book is not marked.
+     */
+    public synchronized int indexOf(String id, int order) {
+        return (id != null) ? sortedIndex.indexOf(id, order) : -1;
+    }
+
+    /**
+     * Returns a snapshot of the marked books in the order they were marked.
+     * @return A new list that the caller is free to sort or modify.
+     */
+    public synchronized List<BookInfo> getMarkedBooks() {
+        return new ArrayList<>(markedBooks.values());
+    }
+
+    /**
+     * Returns a snapshot of the marked books in one of the orders kept by SortedBookIndex.
+     * The order is maintained as books are marked and unmarked, and the snapshot shares the
+     * index's list until the next change, so this is O(1).
+     * @param order One of the SortedBookIndex order constants, e.g. SortedBookIndex.LATEST_MARKED.
+     * @return An unmodifiable list in the requested order that later changes do not affect.
+     */
+    public synchronized List<BookInfo> getMarkedBooks(int order) {
+        return sortedIndex.getBooks(order);
+    }
+
+    /**
+     * Searches the title, subtitle, authors, publisher and description of the marked books.
+     * The search index is kept up to date as books are marked and unmarked.
+     * @param query The words to look for; each also matches words it is the start of.
+     * @return A new list of the books matching every word, best match first.
+     */
+    public synchronized List<BookInfo> searchMarkedBooks(String query) {
+        return searchIndex.search(query);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.bookmark.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.bookmark.models.BookInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SearchResultStore keeps the parsed results of recent searches on disk, one file per
+ * normalized query, page and projection, so searches can be shown immediately and still work offline.
+ * The files are tracked in least-recently-used order and the oldest are deleted once the
+ * total size exceeds the byte budget.
+ * <p>
+ * Every method does file I/O and must be called off the main thread, for example on
+ * AppExecutors.diskIO().
+ * </p>
+ */
+public class SearchResultStore {
+
+    private static final String TAG = "BookMarking";
+    private static final String STORE_DIR = "search_results";
+    private static final long DEFAULT_MAX_BYTES = 5 * 1024 * 1024;
+
+    private static SearchResultStore instance;
+
+    private final File directory;
+    private final Gson gson = new Gson();
+
+    // File name -> size in bytes, least recently used first; loaded on first access
+    private LinkedHashMap<String, Long> files;
+    private long totalBytes;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * One stored page. Its key is kept so a hash collision is never served.
+     */
+    private static class Record {
+        String query;
+        int page;
+        String projection;
+        List<BookInfo> books;
+
+        Record(String query, int page, String projection, List<BookInfo> books) {
+            this.query = query;
+            this.page = page;
+            this.projection = projection;
+            this.books = books;
+        }
+    }
+
+    /**
+     * Returns the shared store.
+     * @param context Any context; only its cache directory is retained.
+     * @return The process-wide SearchResultStore.
+     */
+    public static synchronized SearchResultStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SearchResultStore(new File(context.getApplicationContext().getCacheDir(), STORE_DIR));
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for SearchResultStore.
+     * @param directory The directory holding one file per stored page.
+     */
+    SearchResultStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the byte budget, evicting the least recently used pages if it is now exceeded.
+     * @param maxBytes The maximum total size of the stored pages.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        ensureLoaded();
+        trimToSize();
+    }
+
+    /**
+     * Reads a stored page and marks it as recently used. A page stored for another
+     * projection is never returned, so summaries are not served to a caller wanting full records.
+     * @param query The normalized query.
+     * @param page The page index.
+     * @param projection The name of the projection the page was requested with, e.g. "FULL".
+     * @return The books, or null if the page is not stored.
+     */
+    public synchronized List<BookInfo> get(String query, int page, String projection) {
+        ensureLoaded();
+        String name = fileName(query, page, projection);
+        if (files.get(name) == null) {
+            return null;
+        }
+        File file = new File(directory, name);
+        Record record = null;
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            record = gson.fromJson(reader, Record.class);
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "Could not read stored search results: " + name, e);
+        }
+        if (record == null || record.books == null || !query.equals(record.query) || record.page != page
+                || !projection.equals(record.projection)) {
+            delete(name);
+            return null;
+        }
+        // Persist the recency so the LRU order survives a restart
+        file.setLastModified(System.currentTimeMillis());
+        return record.books;
+    }
+
+    /**
+     * Stores a page, replacing any previous copy, then evicts pages over the byte budget.
+     * @param query The normalized query.
+     * @param page The page index.
+     * @param projection The name of the projection the page was requested with, e.g. "FULL".
+     * @param books The books on the page.
+     */
+    public synchronized void put(String query, int page, String projection, List<BookInfo> books) {
+        ensureLoaded();
+        String name = fileName(query, page, projection);
+        File file = new File(directory, name);
+        File tmp = new File(directory, name + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            gson.toJson(new Record(query, page, projection, books), writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not store search results: " + name, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Could not replace stored search results: " + name);
+            tmp.delete();
+            return;
+        }
+        Long previous = files.remove(name);
+        if (previous != null) {
+            totalBytes -= previous;
+        }
+        files.put(name, file.length());
+        totalBytes += file.length();
+        trimToSize();
+    }
+
+    /**
+     * Scans the directory once, ordering the existing files by when they were last used.
+     */
+    private void ensureLoaded() {
+        if (files != null) {
+            return;
+        }
+        files = new LinkedHashMap<>(16, 0.75f, true);
+        totalBytes = 0;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create " + directory);
+            return;
+        }
+        File[] existing = directory.listFiles();
+        if (existing == null) {
+            return;
+        }
+        Arrays.sort(existing, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : existing) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete(); // left behind by an interrupted write
+                continue;
+            }
+            files.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    private void delete(String name) {
+        Long size = files.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    /**
+     * Names a page's file after a SHA-1 of its query, index and projection, which is safe
+     * for any query.
+     */
+    private static String fileName(String query, int page, String projection) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest((page + "\n" + projection + "\n" + query).getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 5);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(".json").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is always available", e);
+        }
+    }
+}
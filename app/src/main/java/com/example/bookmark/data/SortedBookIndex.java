@@ -0,0 +1,297 @@
+package com.example.bookmark.data;
+
+import com.example.bookmark.models.BookInfo;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * SortedBookIndex keeps the marked books in every order offered by MarkedBooksActivity.
+ * Sort keys are computed once per book when it is added: the marked time, the published
+ * date as an epoch day (so "2004", "2004-05" and "2004-05-12" compare chronologically),
+ * and a collation key for the first author. Three ascending lists are maintained with
+ * binary-search inserts and removals; the descending orders are reversed views of them,
+ * so switching between orders never re-sorts.
+ * <p>
+ * The lists are copy-on-write: getBooks hands out a view of the current lists in O(1), and
+ * the first change after that copies them once before modifying them, so a view that was
+ * handed out never changes.
+ * </p>
+ * <p>
+ * This class is not thread-safe; MarkedBooksRepository guards it with its own lock.
+ * </p>
+ */
+public class SortedBookIndex {
+
+    // Order positions, matching the "sort_options" string array
+    public static final int LATEST_MARKED = 0;
+    public static final int OLDEST_MARKED = 1;
+    public static final int PUBLISHED_ASCENDING = 2;
+    public static final int PUBLISHED_DESCENDING = 3;
+    public static final int AUTHOR_ASCENDING = 4;
+    public static final int AUTHOR_DESCENDING = 5;
+
+    // Books without a usable published date sort before all dated books
+    private static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    /**
+     * A book together with its precomputed sort keys.
+     */
+    private static final class Entry {
+        final String key;
+        final BookInfo book;
+        final long markedTime;
+        final long publishedDay;
+        final CollationKey author;
+
+        Entry(String key, BookInfo book, long publishedDay, CollationKey author) {
+            this.key = key;
+            this.book = book;
+            this.markedTime = book.getMarkedTime();
+            this.publishedDay = publishedDay;
+            this.author = author;
+        }
+    }
+
+    // Ties are broken by key so that every order is total and removals can binary search
+    private static final Comparator<Entry> BY_MARKED = (a, b) -> {
+        int result = Long.compare(a.markedTime, b.markedTime);
+        return (result != 0) ? result : a.key.compareTo(b.key);
+    };
+    private static final Comparator<Entry> BY_PUBLISHED = (a, b) -> {
+        int result = Long.compare(a.publishedDay, b.publishedDay);
+        return (result != 0) ? result : a.key.compareTo(b.key);
+    };
+    private static final Comparator<Entry> BY_AUTHOR = (a, b) -> {
+        int result = a.author.compareTo(b.author);
+        return (result != 0) ? result : a.key.compareTo(b.key);
+    };
+
+    private final Collator collator;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private List<Entry> byMarked = new ArrayList<>();
+    private List<Entry> byPublished = new ArrayList<>();
+    private List<Entry> byAuthor = new ArrayList<>();
+    // True once getBooks has handed out views of the current lists
+    private boolean shared;
+
+    /**
+     * Constructor for SortedBookIndex, using the default locale's collation for authors.
+     */
+    public SortedBookIndex() {
+        collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Replaces the index contents with the given books, sorting each order once.
+     * @param books Books keyed by their marked-store key.
+     */
+    public void reset(Map<String, BookInfo> books) {
+        entries.clear();
+        for (Map.Entry<String, BookInfo> book : books.entrySet()) {
+            Entry entry = newEntry(book.getKey(), book.getValue());
+            entries.put(entry.key, entry);
+        }
+        Collection<Entry> all = entries.values();
+        byMarked = new ArrayList<>(all);
+        byPublished = new ArrayList<>(all);
+        byAuthor = new ArrayList<>(all);
+        shared = false;
+        Collections.sort(byMarked, BY_MARKED);
+        Collections.sort(byPublished, BY_PUBLISHED);
+        Collections.sort(byAuthor, BY_AUTHOR);
+    }
+
+    /**
+     * Adds a book to every order in O(log n) comparisons, replacing any book with the same key.
+     * @param key The book's marked-store key.
+     * @param book The book.
+     */
+    public void add(String key, BookInfo book) {
+        remove(key);
+        Entry entry = newEntry(key, book);
+        entries.put(key, entry);
+        unshare();
+        insert(byMarked, entry, BY_MARKED);
+        insert(byPublished, entry, BY_PUBLISHED);
+        insert(byAuthor, entry, BY_AUTHOR);
+    }
+
+    /**
+     * Removes a book from every order.
+     * @param key The book's marked-store key.
+     */
+    public void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        unshare();
+        delete(byMarked, entry, BY_MARKED);
+        delete(byPublished, entry, BY_PUBLISHED);
+        delete(byAuthor, entry, BY_AUTHOR);
+    }
+
+    /**
+     * Returns a read-only snapshot of the books in the requested order in O(1). Later
+     * changes to the index do not show in it, so it can be handed to a list adapter or
+     * another thread as it is.
+     * @param order One of the order constants, e.g. LATEST_MARKED.
+     * @return The books in that order.
+     */
+    public List<BookInfo> getBooks(int order) {
+        shared = true;
+        switch (order) {
+            case OLDEST_MARKED:
+                return new BookView(byMarked, false);
+            case PUBLISHED_ASCENDING:
+                return new BookView(byPublished, false);
+            case PUBLISHED_DESCENDING:
+                return new BookView(byPublished, true);
+            case AUTHOR_ASCENDING:
+                return new BookView(byAuthor, false);
+            case AUTHOR_DESCENDING:
+                return new BookView(byAuthor, true);
+            case LATEST_MARKED:
+            default:
+                return new BookView(byMarked, true);
+        }
+    }
+
+    /**
+     * Finds where a book appears in one of the orders, in O(log n) comparisons.
+     * @param key The book's marked-store key.
+     * @param order One of the order constants, e.g. LATEST_MARKED.
+     * @return The book's position in getBooks(order), or -1 if it is not in the index.
+     */
+    public int indexOf(String key, int order) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return -1;
+        }
+        switch (order) {
+            case OLDEST_MARKED:
+                return Collections.binarySearch(byMarked, entry, BY_MARKED);
+            case PUBLISHED_ASCENDING:
+                return Collections.binarySearch(byPublished, entry, BY_PUBLISHED);
+            case PUBLISHED_DESCENDING:
+                return byPublished.size() - 1 - Collections.binarySearch(byPublished, entry, BY_PUBLISHED);
+            case AUTHOR_ASCENDING:
+                return Collections.binarySearch(byAuthor, entry, BY_AUTHOR);
+            case AUTHOR_DESCENDING:
+                return byAuthor.size() - 1 - Collections.binarySearch(byAuthor, entry, BY_AUTHOR);
+            case LATEST_MARKED:
+            default:
+                return byMarked.size() - 1 - Collections.binarySearch(byMarked, entry, BY_MARKED);
+        }
+    }
+
+    /**
+     * Gives the index lists of its own before they are modified, if views of the current
+     * ones have been handed out.
+     */
+    private void unshare() {
+        if (shared) {
+            byMarked = new ArrayList<>(byMarked);
+            byPublished = new ArrayList<>(byPublished);
+            byAuthor = new ArrayList<>(byAuthor);
+            shared = false;
+        }
+    }
+
+    private Entry newEntry(String key, BookInfo book) {
+        List<String> authors = book.getAuthors();
+        String firstAuthor = (authors != null && !authors.isEmpty() && authors.get(0) != null) ? authors.get(0) : "";
+        return new Entry(key, book, parsePublishedDay(book.getPublishedDate()), collator.getCollationKey(firstAuthor));
+    }
+
+    private static void insert(List<Entry> list, Entry entry, Comparator<Entry> comparator) {
+        int index = Collections.binarySearch(list, entry, comparator);
+        list.add((index < 0) ? -index - 1 : index, entry);
+    }
+
+    private static void delete(List<Entry> list, Entry entry, Comparator<Entry> comparator) {
+        int index = Collections.binarySearch(list, entry, comparator);
+        if (index >= 0) {
+            list.remove(index);
+        }
+    }
+
+    /**
+     * Converts a Google Books published date ("yyyy", "yyyy-MM" or "yyyy-MM-dd", possibly
+     * followed by a time) to days since 1970-01-01, treating a missing month or day as the
+     * first. Unparseable dates return UNKNOWN_DATE.
+     * @param date The published date string.
+     * @return The epoch day.
+     */
+    static long parsePublishedDay(String date) {
+        if (date == null || date.length() < 4) {
+            return UNKNOWN_DATE;
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = (date.length() >= 7 && date.charAt(4) == '-') ? parseDigits(date, 5, 7) : 1;
+        int day = (date.length() >= 10 && date.charAt(7) == '-') ? parseDigits(date, 8, 10) : 1;
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return UNKNOWN_DATE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days from 1970-01-01 to the given proleptic Gregorian date (Howard Hinnant's
+     * days_from_civil), avoiding java.time which needs API 26.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Read-only view of one order's entries, optionally reversed.
+     */
+    private static final class BookView extends AbstractList<BookInfo> implements RandomAccess {
+        private final List<Entry> entries;
+        private final boolean reversed;
+
+        BookView(List<Entry> entries, boolean reversed) {
+            this.entries = entries;
+            this.reversed = reversed;
+        }
+
+        @Override
+        public BookInfo get(int index) {
+            return entries.get(reversed ? entries.size() - 1 - index : index).book;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+}
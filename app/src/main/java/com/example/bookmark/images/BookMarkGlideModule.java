@@ -0,0 +1,51 @@
+package com.example.bookmark.images;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * BookMarkGlideModule configures the app's single image loader.
+ * The memory cache and bitmap pool are sized from the device's per-app memory class, and
+ * covers are kept in a dedicated on-disk cache so a thumbnail shown in a list is also
+ * available to BookDetails without another network fetch.
+ */
+@GlideModule
+public class BookMarkGlideModule extends AppGlideModule {
+
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+    private static final long LOW_RAM_DISK_CACHE_BYTES = 20L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long memoryClassBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        boolean lowRam = activityManager.isLowRamDevice();
+
+        // An eighth of the heap for decoded covers and a sixteenth for reusable bitmaps
+        builder.setMemoryCache(new LruResourceCache(memoryClassBytes / 8));
+        builder.setBitmapPool(new LruBitmapPool(memoryClassBytes / 16));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR,
+                lowRam ? LOW_RAM_DISK_CACHE_BYTES : DISK_CACHE_BYTES));
+
+        // Covers are small JPEGs without alpha, so RGB_565 halves their memory on low-RAM devices
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(lowRam ? DecodeFormat.PREFER_RGB_565 : DecodeFormat.PREFER_ARGB_8888));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bookmark.images;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.bookmark.adapters.BookAdapter;
+import com.example.bookmark.models.BookInfo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ThumbnailPrefetcher warms covers for the rows just ahead of the visible ones.
+ * Glide's RecyclerViewPreloader follows the scroll direction, preloads the next
+ * PRELOAD_AHEAD covers at the exact decoded size used by Thumbnails, and clears preloads
+ * that have fallen out of range. While the list is flung faster than FLING_PAUSE_VELOCITY
+ * all image requests of the screen are paused, then resumed once scrolling settles, so
+ * bandwidth and decoding go to the rows the user actually stops on.
+ */
+public final class ThumbnailPrefetcher {
+
+    private static final int PRELOAD_AHEAD = 6;
+    // Flings faster than this many pixels per second pause image loading until scrolling stops
+    private static final int FLING_PAUSE_VELOCITY = 6000;
+
+    private ThumbnailPrefetcher() {
+    }
+
+    /**
+     * Adds cover prefetching and fling pausing to a list backed by a BookAdapter.
+     * @param recyclerView The list.
+     * @param adapter The list's adapter.
+     */
+    public static void attach(RecyclerView recyclerView, BookAdapter adapter) {
+        RequestManager requestManager = Glide.with(recyclerView);
+        Resources resources = recyclerView.getResources();
+
+        ListPreloader.PreloadModelProvider<BookInfo> modelProvider = new ListPreloader.PreloadModelProvider<BookInfo>() {
+            @NonNull
+            @Override
+            public List<BookInfo> getPreloadItems(int position) {
+                BookInfo book = adapter.getBookAt(position);
+                if (book == null || book.getThumbnail() == null || book.getThumbnail().isEmpty()) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(book);
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull BookInfo book) {
+                return Thumbnails.request(requestManager, resources, book.getThumbnail());
+            }
+        };
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(requestManager, modelProvider,
+                new FixedPreloadSizeProvider<>(Thumbnails.getWidth(resources), Thumbnails.getHeight(resources)),
+                PRELOAD_AHEAD));
+
+        recyclerView.setOnFlingListener(new RecyclerView.OnFlingListener() {
+            @Override
+            public boolean onFling(int velocityX, int velocityY) {
+                if (Math.abs(velocityY) > FLING_PAUSE_VELOCITY) {
+                    requestManager.pauseRequests();
+                }
+                return false; // Let the RecyclerView perform the fling itself
+            }
+        });
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE && requestManager.isPaused()) {
+                    requestManager.resumeRequests();
+                }
+            }
+        });
+    }
+}
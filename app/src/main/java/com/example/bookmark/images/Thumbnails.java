@@ -0,0 +1,112 @@
+package com.example.bookmark.images;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.example.bookmark.R;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.util.Locale;
+
+/**
+ * Thumbnails loads book covers into ImageViews through Glide.
+ * Every cover is decoded at the same fixed size (book_thumbnail_width x book_thumbnail_height)
+ * with the same options in the lists and in BookDetails. The memory-cache key is therefore
+ * identical on both screens, so opening a book reuses the bitmap already decoded for its row
+ * and the cover appears instantly instead of being fetched and decoded again.
+ * <p>
+ * While PerfMetrics is recording, each displayed cover's load time is recorded per data
+ * source, so decodes from the disk cache or network can be told apart from memory hits.
+ * </p>
+ */
+public final class Thumbnails {
+
+    private Thumbnails() {
+    }
+
+    /**
+     * Loads a cover, showing the placeholder while it loads and for books without one.
+     * @param target The ImageView to load into.
+     * @param url The thumbnail URL, may be null or empty.
+     */
+    public static void load(ImageView target, String url) {
+        if (url == null || url.isEmpty()) {
+            Glide.with(target).clear(target);
+            target.setImageResource(R.drawable.placeholder_image);
+            return;
+        }
+        RequestBuilder<Drawable> request = request(Glide.with(target), target.getResources(), url);
+        if (PerfMetrics.isEnabled()) {
+            request = request.listener(new LoadTimer(PerfMetrics.now()));
+        }
+        request.into(target);
+    }
+
+    /**
+     * Builds the cover request used on every screen, so that preloads and displays share
+     * one cache key.
+     * @param requestManager The Glide request manager of the screen.
+     * @param resources Resources used to resolve the cover size.
+     * @param url The thumbnail URL.
+     * @return The request, ready for into() or preload().
+     */
+    public static RequestBuilder<Drawable> request(RequestManager requestManager, Resources resources, String url) {
+        return requestManager
+                .load(url)
+                .override(getWidth(resources), getHeight(resources))
+                .downsample(DownsampleStrategy.AT_MOST)
+                .fitCenter()
+                .placeholder(R.drawable.placeholder_image)
+                .error(R.drawable.error_image);
+    }
+
+    /**
+     * Records the time from requesting a cover to it being ready, which includes the fetch
+     * and decode unless the bitmap came from the memory cache.
+     */
+    private static final class LoadTimer implements RequestListener<Drawable> {
+        private final long started;
+
+        LoadTimer(long started) {
+            this.started = started;
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+            PerfMetrics.count(PerfMetrics.IMAGE_LOAD + ".failed");
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                       DataSource dataSource, boolean isFirstResource) {
+            PerfMetrics.record(PerfMetrics.IMAGE_LOAD + "." + dataSource.name().toLowerCase(Locale.ROOT), started);
+            return false;
+        }
+    }
+
+    /**
+     * @return The decoded cover width in pixels.
+     */
+    public static int getWidth(Resources resources) {
+        return resources.getDimensionPixelSize(R.dimen.book_thumbnail_width);
+    }
+
+    /**
+     * @return The decoded cover height in pixels.
+     */
+    public static int getHeight(Resources resources) {
+        return resources.getDimensionPixelSize(R.dimen.book_thumbnail_height);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bookmark.models;
+
+import com.example.bookmark.util.StringPool;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * AuthorList is the immutable list of a book's authors. It keeps the names in a plain
+ * array sized to fit, without the spare capacity and bookkeeping of an ArrayList, and
+ * interns every name in StringPool so books by the same author share one string. Books
+ * without authors all share EMPTY.
+ * <p>
+ * Fields of this type are annotated with GsonAdapter, which stores the list as a JSON array
+ * of names, the same as the ArrayList it replaced, so saved books read back unchanged.
+ * The annotation has to be on the field: Gson treats any List type as a collection before
+ * it looks at an annotation on the class.
+ * </p>
+ */
+public final class AuthorList extends AbstractList<String> implements RandomAccess {
+
+    public static final AuthorList EMPTY = new AuthorList(new String[0]);
+
+    private final String[] names;
+
+    private AuthorList(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Returns an AuthorList holding the given names, interned.
+     * @param names The names in order; may be null.
+     * @return The list, EMPTY if there are no names, or names itself if it already is an AuthorList.
+     */
+    public static AuthorList of(Collection<String> names) {
+        if (names instanceof AuthorList) {
+            return (AuthorList) names;
+        }
+        if (names == null || names.isEmpty()) {
+            return EMPTY;
+        }
+        String[] interned = new String[names.size()];
+        int i = 0;
+        for (String name : names) {
+            interned[i++] = StringPool.intern(name);
+        }
+        return new AuthorList(interned);
+    }
+
+    @Override
+    public String get(int index) {
+        return names[index];
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Reads and writes an AuthorList as a JSON array of names.
+     */
+    public static final class GsonAdapter extends TypeAdapter<AuthorList> {
+
+        @Override
+        public void write(JsonWriter out, AuthorList value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (String name : value.names) {
+                out.value(name);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public AuthorList read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<String> names = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    names.add(null);
+                } else {
+                    names.add(in.nextString());
+                }
+            }
+            in.endArray();
+            return of(names);
+        }
+    }
+}
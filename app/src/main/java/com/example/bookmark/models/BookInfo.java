@@ -1,18 +1,34 @@
 package com.example.bookmark.models;
 
-import java.util.ArrayList;
+import com.example.bookmark.util.StringPool;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.List;
 
 /**
  * BookInfo is a model class that represents the details of a book.
  * It contains various attributes such as title, author, publisher, description,
  * and links to preview, buy, or get more information about the book.
+ * <p>
+ * Search lists load books as summaries: only the fields a list row shows are filled in
+ * and the rest are empty. isSummary() tells screens that need the description or links to
+ * load the full record by volume ID (see VolumeDetailLoader).
+ * </p>
+ * <p>
+ * Large libraries repeat the same publishers and authors many times, so those names are
+ * interned in StringPool and the authors are kept in an immutable AuthorList. This holds
+ * for books built here and for books read back by Gson.
+ * </p>
  */
 public class BookInfo {
 
     // Book detail variables
+    private String id;
     private String title;
     private String subtitle;
-    private ArrayList<String> authors;
+    @JsonAdapter(AuthorList.GsonAdapter.class)
+    private AuthorList authors;
+    @JsonAdapter(StringPool.InternAdapter.class)
     private String publisher;
     private String publishedDate;
     private String description;
@@ -21,14 +37,18 @@ public class BookInfo {
     private String previewLink;
     private String infoLink;
     private String buyLink;
+    // When the user marked the book; set by MarkedBooksRepository, 0 for unmarked books
     private long markedTime;
+    // True while only the list fields are present; false for full records and older saved books
+    private boolean summary;
 
     /**
      * Constructor for the BookInfo class that initializes all book-related details.
      *
+     * @param id            The Google Books volume ID, used as the book's identity.
      * @param title         The title of the book.
      * @param subtitle      The subtitle of the book (if any).
-     * @param authors       A list of authors who wrote the book.
+     * @param authors       A list of authors who wrote the book; it is copied.
      * @param publisher     The name of the publisher.
      * @param publishedDate The date the book was published.
      * @param description   A brief description of the book.
@@ -38,13 +58,14 @@ public class BookInfo {
      * @param infoLink      A URL link for additional book details.
      * @param buyLink       A URL link to purchase the book.
      */
-    public BookInfo(String title, String subtitle, ArrayList<String> authors, String publisher,
+    public BookInfo(String id, String title, String subtitle, List<String> authors, String publisher,
                     String publishedDate, String description, int pageCount, String thumbnail,
                     String previewLink, String infoLink, String buyLink) {
+        this.id = id;
         this.title = title;
         this.subtitle = subtitle;
-        this.authors = (authors == null) ? new ArrayList<>() : authors;
-        this.publisher = publisher;
+        this.authors = AuthorList.of(authors);
+        this.publisher = StringPool.intern(publisher);
         this.publishedDate = publishedDate;
         this.description = description;
         this.pageCount = pageCount;
@@ -52,10 +73,17 @@ public class BookInfo {
         this.previewLink = previewLink;
         this.infoLink = infoLink;
         this.buyLink = buyLink;
-        this.markedTime = System.currentTimeMillis(); // Timestamp when user marks a book
     }
 
     /**Book Details Getter and Setter Methods*/
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -72,12 +100,12 @@ public class BookInfo {
         this.subtitle = subtitle;
     }
 
-    public ArrayList<String> getAuthors() {
+    public List<String> getAuthors() {
         return authors;
     }
 
-    public void setAuthors(ArrayList<String> authors) {
-        this.authors = authors;
+    public void setAuthors(List<String> authors) {
+        this.authors = AuthorList.of(authors);
     }
 
     public String getPublisher() {
@@ -85,7 +113,7 @@ public class BookInfo {
     }
 
     public void setPublisher(String publisher) {
-        this.publisher = publisher;
+        this.publisher = StringPool.intern(publisher);
     }
 
     public String getPublishedDate() {
@@ -151,4 +179,12 @@ public class BookInfo {
     public void setMarkedTime(long markedTime) {
         this.markedTime = markedTime;
     }
+
+    public boolean isSummary() {
+        return summary;
+    }
+
+    public void setSummary(boolean summary) {
+        this.summary = summary;
+    }
 }
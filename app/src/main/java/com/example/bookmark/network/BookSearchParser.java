@@ -0,0 +1,203 @@
+package com.example.bookmark.network;
+
+import com.example.bookmark.models.BookInfo;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BookSearchParser turns a Google Books "volumes" search response into BookInfo objects.
+ * It streams through the JSON with a Gson JsonReader, reading only the fields BookInfo
+ * needs and skipping everything else (accessInfo, searchInfo, layerInfo, ...) without
+ * building a DOM for it. Missing fields default to "" and 0, as with org.json's optString.
+ */
+public final class BookSearchParser {
+
+    private BookSearchParser() {
+    }
+
+    /**
+     * Parses a complete search response.
+     * @param in The response body.
+     * @return The books in the "items" array, or an empty list if there are none.
+     * @throws IOException If the body is not valid JSON.
+     */
+    public static List<BookInfo> parse(Reader in) throws IOException {
+        List<BookInfo> books = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("items".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    BookInfo book = readVolume(reader);
+                    if (book != null) {
+                        books.add(book);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return books;
+    }
+
+    /**
+     * Parses a single volume resource, as returned by volumes/{id}.
+     * @param in The response body.
+     * @return The book, or null if the volume has no volumeInfo.
+     * @throws IOException If the body is not valid JSON.
+     */
+    public static BookInfo parseVolume(Reader in) throws IOException {
+        return readVolume(new JsonReader(in));
+    }
+
+    /**
+     * Reads one element of "items", or a single volume: the volume ID plus its volumeInfo and saleInfo.
+     * @return The book, or null if the item has no volumeInfo.
+     */
+    private static BookInfo readVolume(JsonReader reader) throws IOException {
+        String id = "";
+        BookInfo book = null;
+        String buyLink = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("id")) {
+                id = readString(reader);
+            } else if (name.equals("volumeInfo") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                book = readVolumeInfo(reader);
+            } else if (name.equals("saleInfo")) {
+                buyLink = readField(reader, "buyLink");
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (book == null) {
+            return null;
+        }
+        book.setId(id);
+        book.setBuyLink(buyLink);
+        return book;
+    }
+
+    /**
+     * Reads the volumeInfo object into a BookInfo without an ID or buy link.
+     */
+    private static BookInfo readVolumeInfo(JsonReader reader) throws IOException {
+        String title = "", subtitle = "", publisher = "", publishedDate = "", description = "";
+        String thumbnail = "", previewLink = "", infoLink = "";
+        int pageCount = 0;
+        ArrayList<String> authors = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title":
+                    title = readString(reader);
+                    break;
+                case "subtitle":
+                    subtitle = readString(reader);
+                    break;
+                case "authors":
+                    readStrings(reader, authors);
+                    break;
+                case "publisher":
+                    publisher = readString(reader);
+                    break;
+                case "publishedDate":
+                    publishedDate = readString(reader);
+                    break;
+                case "description":
+                    description = readString(reader);
+                    break;
+                case "pageCount":
+                    pageCount = readInt(reader);
+                    break;
+                case "imageLinks":
+                    thumbnail = readField(reader, "thumbnail");
+                    break;
+                case "previewLink":
+                    previewLink = readString(reader);
+                    break;
+                case "infoLink":
+                    infoLink = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new BookInfo("", title, subtitle, authors, publisher, publishedDate, description,
+                pageCount, thumbnail, previewLink, infoLink, "");
+    }
+
+    /**
+     * Reads a single string field out of an object, skipping its other members.
+     * A value that is not an object is skipped and yields "".
+     */
+    private static String readField(JsonReader reader, String field) throws IOException {
+        String value = "";
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return value;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(field)) {
+                value = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    /**
+     * Appends every string of a JSON array to the given list; a non-array is skipped.
+     */
+    private static void readStrings(JsonReader reader, List<String> out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            out.add(readString(reader));
+        }
+        reader.endArray();
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return "";
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            reader.skipValue();
+            return 0;
+        }
+        try {
+            return reader.nextInt();
+        } catch (NumberFormatException e) {
+            reader.skipValue();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bookmark.network;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * BookSearchRequest fetches a Google Books search and parses it with BookSearchParser.
+ * Volley calls parseNetworkResponse on its network dispatcher thread, so the streaming
+ * parse happens off the main thread and only the finished list is delivered to the UI.
+ * Books parsed from a SUMMARY response are flagged as summaries there as well.
+ */
+public class BookSearchRequest extends Request<List<BookInfo>> {
+
+    private final NetworkClient networkClient;
+    private final VolumesUrlBuilder.Projection projection;
+    private final Object lock = new Object();
+    private Response.Listener<List<BookInfo>> listener;
+
+    /**
+     * Constructor for BookSearchRequest.
+     * @param networkClient The client whose cache policy applies.
+     * @param url The search URL to GET.
+     * @param projection The projection the URL was built with.
+     * @param listener Receives the parsed books on the main thread.
+     * @param errorListener Receives any network or parse error on the main thread.
+     */
+    public BookSearchRequest(NetworkClient networkClient, String url, VolumesUrlBuilder.Projection projection,
+                             Response.Listener<List<BookInfo>> listener,
+                             Response.ErrorListener errorListener) {
+        super(Method.GET, url, errorListener);
+        this.networkClient = networkClient;
+        this.projection = projection;
+        this.listener = listener;
+    }
+
+    @Override
+    protected Response<List<BookInfo>> parseNetworkResponse(NetworkResponse response) {
+        Charset charset = Charset.forName(HttpHeaderParser.parseCharset(response.headers, "UTF-8"));
+        long started = PerfMetrics.start(PerfMetrics.SEARCH_PARSE);
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(response.data), charset)) {
+            List<BookInfo> books = BookSearchParser.parse(reader);
+            if (projection == VolumesUrlBuilder.Projection.SUMMARY) {
+                for (BookInfo book : books) {
+                    book.setSummary(true);
+                }
+            }
+            return Response.success(books, networkClient.cacheEntryFor(response));
+        } catch (IOException | RuntimeException e) {
+            return Response.error(new ParseError(e));
+        } finally {
+            PerfMetrics.stop(PerfMetrics.SEARCH_PARSE, started);
+        }
+    }
+
+    @Override
+    protected void deliverResponse(List<BookInfo> response) {
+        Response.Listener<List<BookInfo>> listener;
+        synchronized (lock) {
+            listener = this.listener;
+        }
+        if (listener != null) {
+            listener.onResponse(response);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        synchronized (lock) {
+            listener = null;
+        }
+    }
+}
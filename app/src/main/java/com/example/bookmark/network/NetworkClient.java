@@ -0,0 +1,195 @@
+package com.example.bookmark.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.DiskBasedCache;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.android.volley.toolbox.HurlStack;
+import com.example.bookmark.BuildConfig;
+import com.example.bookmark.util.AppExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NetworkClient owns the app's single Volley RequestQueue.
+ * It is created once per process with a bounded on-disk response cache, so repeated or
+ * back-navigated searches are served from disk instead of spinning up a new dispatcher
+ * pool and refetching everything for each query.
+ * <p>
+ * HttpURLConnection already sends "Accept-Encoding: gzip" and transparently inflates the
+ * response, but Google APIs only compress for clients whose User-Agent contains "gzip",
+ * so every connection identifies itself with USER_AGENT.
+ * </p>
+ */
+public class NetworkClient {
+
+    private static final String CACHE_DIR = "volley";
+    private static final int CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+
+    // How long a response without any freshness headers is treated as fresh
+    private static final long FRESH_TTL_MILLIS = 5 * 60 * 1000L;
+    private static final long DEFAULT_OFFLINE_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Google APIs require "gzip" in the User-Agent before they compress a response
+    static final String USER_AGENT = "BookMark/" + BuildConfig.VERSION_NAME + " (gzip)";
+
+    private static NetworkClient instance;
+
+    private final RequestQueue requestQueue;
+    private final ConnectivityManager connectivityManager;
+    private volatile long offlineTtlMillis = DEFAULT_OFFLINE_TTL_MILLIS;
+    // Callbacks for requests added with add(request, onFinished), keyed by identity
+    private final Map<Request<?>, Runnable> finishCallbacks = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared client, creating and starting its RequestQueue on first use.
+     * @param context Any context; the application context is retained.
+     * @return The process-wide NetworkClient.
+     */
+    public static synchronized NetworkClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new NetworkClient(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NetworkClient(Context appContext) {
+        File cacheDir = new File(appContext.getCacheDir(), CACHE_DIR);
+        HurlStack stack = new HurlStack() {
+            @Override
+            protected HttpURLConnection createConnection(URL url) throws IOException {
+                HttpURLConnection connection = super.createConnection(url);
+                // Accept-Encoding is left to HttpURLConnection: setting it here would turn off
+                // its transparent decompression
+                connection.setRequestProperty("User-Agent", USER_AGENT);
+                return connection;
+            }
+        };
+        requestQueue = new RequestQueue(new DiskBasedCache(cacheDir, CACHE_SIZE_BYTES),
+                new BasicNetwork(stack));
+        requestQueue.addRequestEventListener((request, event) -> {
+            // Finishing may happen on a dispatcher thread, e.g. for a 304 after a stale cache hit
+            if (event == RequestQueue.RequestEvent.REQUEST_FINISHED) {
+                Runnable onFinished = finishCallbacks.remove(request);
+                if (onFinished != null) {
+                    AppExecutors.mainThread().execute(onFinished);
+                }
+            }
+        });
+        requestQueue.start();
+        connectivityManager = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Adds a request to the shared queue.
+     * @param request The request to send.
+     * @param <T> The type of the parsed response.
+     */
+    public <T> void add(Request<T> request) {
+        requestQueue.add(request);
+    }
+
+    /**
+     * Adds a request and runs a callback on the main thread once Volley is done with it.
+     * A request whose cached copy is stale is delivered twice, the cached copy first and
+     * then the revalidated response, or only once if the server answers 304; either way
+     * onFinished runs after the last delivery. It also runs after an error or cancellation.
+     * @param request The request to send.
+     * @param onFinished Runs on the main thread after the request's last delivery.
+     * @param <T> The type of the parsed response.
+     */
+    public <T> void add(Request<T> request, Runnable onFinished) {
+        finishCallbacks.put(request, onFinished);
+        requestQueue.add(request);
+    }
+
+    /**
+     * @return The shared RequestQueue, for callers that need cancellation or cache access.
+     */
+    public RequestQueue getRequestQueue() {
+        return requestQueue;
+    }
+
+    /**
+     * Checks whether the device currently has a network that can reach the internet.
+     * @return True if a request is worth attempting.
+     */
+    public boolean isNetworkAvailable() {
+        if (connectivityManager == null) {
+            return true;
+        }
+        Network network = connectivityManager.getActiveNetwork();
+        NetworkCapabilities capabilities = (network != null) ? connectivityManager.getNetworkCapabilities(network) : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    /**
+     * Registers a callback that is told when a default network becomes available again.
+     * @param callback The callback; unregister it with unregisterNetworkCallback.
+     */
+    public void registerNetworkCallback(ConnectivityManager.NetworkCallback callback) {
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(callback);
+        }
+    }
+
+    /**
+     * Unregisters a callback added with registerNetworkCallback.
+     * @param callback The callback.
+     */
+    public void unregisterNetworkCallback(ConnectivityManager.NetworkCallback callback) {
+        if (connectivityManager != null) {
+            connectivityManager.unregisterNetworkCallback(callback);
+        }
+    }
+
+    /**
+     * Sets how long a cached response may be reused when it cannot be revalidated,
+     * for example while the device is offline.
+     * @param offlineTtlMillis The maximum age of a reusable response, in milliseconds.
+     */
+    public void setOfflineTtlMillis(long offlineTtlMillis) {
+        this.offlineTtlMillis = offlineTtlMillis;
+    }
+
+    /**
+     * Builds a cache entry for a response from its HTTP cache headers. A response without
+     * any freshness headers is treated as fresh for a few minutes; a lifetime the server
+     * gave, however short, is kept. Either way the entry stays usable for the configured
+     * offline TTL. Volley serves a fresh entry directly and revalidates a stale one (with
+     * its ETag) while showing the cached copy first.
+     * @param response The network response.
+     * @return The cache entry to store, never null.
+     */
+    public Cache.Entry cacheEntryFor(NetworkResponse response) {
+        long now = System.currentTimeMillis();
+        Cache.Entry entry = HttpHeaderParser.parseCacheHeaders(response);
+        if (entry == null) {
+            // no-cache or no-store: kept stale, so it is revalidated on every use and only
+            // served as it is while offline
+            entry = new Cache.Entry();
+            entry.data = response.data;
+            entry.responseHeaders = response.headers;
+            entry.allResponseHeaders = response.allHeaders;
+            entry.serverDate = now;
+        } else if (entry.softTtl == 0) {
+            // Neither Cache-Control nor Expires said how long the response is fresh
+            entry.softTtl = now + FRESH_TTL_MILLIS;
+        }
+        entry.ttl = Math.max(entry.ttl, now + offlineTtlMillis);
+        return entry;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.bookmark.network;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.android.volley.Response;
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SearchMemo shares search responses between every SearchPager in the process. Parsed
+ * pages are memoized by URL for a few minutes, so a screen that searches for something
+ * another screen just loaded gets the same list without a request, a cache read or a parse.
+ * A page that is already being fetched is not requested again: later callers join the
+ * in-flight call and are all answered by its single response.
+ * <p>
+ * A stale page in Volley's disk cache is delivered first and then again once revalidated,
+ * so a call stays in flight, joinable and cancellable until Volley has finished with it,
+ * and only the final result is memoized.
+ * </p>
+ * <p>
+ * Every caller of a page gets the same list, so it must not be modified. The listener is
+ * told whether the list is new from the request or one another caller already received,
+ * so only one of them needs to save it.
+ * </p>
+ * <p>
+ * Callers are identified by a tag. Cancelling a tag only detaches that caller; the
+ * underlying Volley request is cancelled once no caller is waiting for it any more.
+ * All methods must be called on the main thread, where Volley delivers its responses.
+ * </p>
+ */
+public class SearchMemo {
+
+    private static final int MAX_PAGES = 50;
+    // Matches how long NetworkClient treats a cached response as fresh
+    private static final long FRESH_MILLIS = 5 * 60 * 1000L;
+
+    private static SearchMemo instance;
+
+    /**
+     * Receives a page of search results on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param books The books; shared with other callers, so not to be modified.
+         * @param shared True if the list was already delivered before, from memory or to
+         *               the caller whose request this caller joined.
+         */
+        void onResponse(List<BookInfo> books, boolean shared);
+    }
+
+    /**
+     * A memoized page and when it was received.
+     */
+    private static final class Result {
+        final List<BookInfo> books;
+        final long receivedAt;
+
+        Result(List<BookInfo> books, long receivedAt) {
+            this.books = books;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    /**
+     * A caller waiting for an in-flight request.
+     */
+    private static final class Waiter {
+        final Object tag;
+        final Listener listener;
+        final Response.ErrorListener errorListener;
+        // True once the call has delivered something to this caller
+        boolean answered;
+
+        Waiter(Object tag, Listener listener, Response.ErrorListener errorListener) {
+            this.tag = tag;
+            this.listener = listener;
+            this.errorListener = errorListener;
+        }
+    }
+
+    /**
+     * One request on the network and everyone waiting for it.
+     */
+    private static final class Call {
+        BookSearchRequest request;
+        final List<Waiter> waiters = new ArrayList<>();
+        // The latest books delivered, possibly a stale cached copy, and whether it then failed
+        List<BookInfo> books;
+        boolean failed;
+    }
+
+    private final LruCache<String, Result> results = new LruCache<>(MAX_PAGES);
+    private final Map<String, Call> inFlight = new HashMap<>();
+    // Memoized answers posted to the main thread but not yet delivered
+    private final List<Waiter> pendingHits = new ArrayList<>();
+
+    /**
+     * @return The process-wide SearchMemo.
+     */
+    public static synchronized SearchMemo getInstance() {
+        if (instance == null) {
+            instance = new SearchMemo();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a page of search results, from memory if it was fetched recently, by joining a
+     * request for the same URL that is already in flight, or else from a new request.
+     * The listener is always called asynchronously, even for a memoized page.
+     * @param networkClient The client used if a request has to be sent.
+     * @param url The full search URL, including the page parameters.
+     * @param projection The projection the URL was built with.
+     * @param tag Identifies the caller for cancelAll.
+     * @param listener Receives the books on the main thread.
+     * @param errorListener Receives a network or parse error on the main thread.
+     */
+    public void fetch(NetworkClient networkClient, String url, VolumesUrlBuilder.Projection projection,
+                      Object tag, Listener listener, Response.ErrorListener errorListener) {
+        Waiter waiter = new Waiter(tag, listener, errorListener);
+        Result result = results.get(url);
+        if (result != null && SystemClock.elapsedRealtime() - result.receivedAt < FRESH_MILLIS) {
+            // Posted so callers see the same ordering as for a network response
+            PerfMetrics.count("search.memo_hit");
+            pendingHits.add(waiter);
+            AppExecutors.mainThread().execute(() -> {
+                if (pendingHits.remove(waiter)) {
+                    listener.onResponse(result.books, true);
+                }
+            });
+            return;
+        }
+
+        Call call = inFlight.get(url);
+        if (call != null) {
+            PerfMetrics.count("search.joined");
+            call.waiters.add(waiter);
+            return;
+        }
+
+        PerfMetrics.count("search.sent");
+        long started = PerfMetrics.now();
+        Call newCall = new Call();
+        newCall.waiters.add(waiter);
+        newCall.request = new BookSearchRequest(networkClient, url, projection,
+                books -> {
+                    newCall.books = books;
+                    // Copied because a listener may start or cancel fetches while being told
+                    boolean shared = false;
+                    for (Waiter each : new ArrayList<>(newCall.waiters)) {
+                        each.answered = true;
+                        each.listener.onResponse(books, shared);
+                        shared = true;
+                    }
+                },
+                error -> {
+                    PerfMetrics.count("search.error");
+                    newCall.failed = true;
+                    for (Waiter each : new ArrayList<>(newCall.waiters)) {
+                        each.answered = true;
+                        each.errorListener.onErrorResponse(error);
+                    }
+                });
+        inFlight.put(url, newCall);
+        networkClient.add(newCall.request, () -> finish(url, newCall, started));
+    }
+
+    /**
+     * Completes a call once Volley has made its last delivery: the call leaves inFlight,
+     * its final books are memoized, and callers that joined after the last delivery (when
+     * the server confirmed the cached copy with a 304) receive that copy.
+     */
+    private void finish(String url, Call call, long started) {
+        PerfMetrics.record(PerfMetrics.SEARCH_REQUEST, started);
+        if (inFlight.get(url) == call) {
+            inFlight.remove(url);
+        }
+        if (call.books == null || call.failed || call.request.isCanceled()) {
+            return;
+        }
+        results.put(url, new Result(call.books, SystemClock.elapsedRealtime()));
+        for (Waiter each : new ArrayList<>(call.waiters)) {
+            if (!each.answered) {
+                each.answered = true;
+                each.listener.onResponse(call.books, true);
+            }
+        }
+    }
+
+    /**
+     * Stops delivering results to a caller. A request with no other caller waiting for it
+     * is cancelled; one that another screen still needs keeps going.
+     * @param tag The tag passed to fetch.
+     */
+    public void cancelAll(Object tag) {
+        pendingHits.removeIf(waiter -> waiter.tag == tag);
+        Iterator<Call> calls = inFlight.values().iterator();
+        while (calls.hasNext()) {
+            Call call = calls.next();
+            call.waiters.removeIf(waiter -> waiter.tag == tag);
+            if (call.waiters.isEmpty()) {
+                call.request.cancel();
+                calls.remove();
+            }
+        }
+    }
+}
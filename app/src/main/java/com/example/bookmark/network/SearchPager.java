@@ -0,0 +1,367 @@
+package com.example.bookmark.network;
+
+import com.android.volley.NoConnectionError;
+import com.android.volley.VolleyError;
+import com.example.bookmark.BuildConfig;
+import com.example.bookmark.data.SearchResultStore;
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.AppExecutors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * SearchPager loads Google Books search results one page at a time using the API's
+ * startIndex and maxResults parameters. Loaded pages form a contiguous window that is
+ * capped at MAX_PAGES_IN_MEMORY: when a page is appended past the cap the first page is
+ * dropped, and scrolling back up reloads it (usually from the HTTP cache) while the last
+ * page is dropped instead. Every change is reported as an item range so the adapter can
+ * use range notifications rather than being rebuilt.
+ * <p>
+ * Requests for a search are tagged so that starting a different search cancels them, and
+ * a generation counter guarantees that a late response to an old query is ignored.
+ * Searching again for the same (normalized) query while it is loaded or loading is a no-op.
+ * </p>
+ * <p>
+ * Pages are offline-first: every page is looked up in the SearchResultStore while it is
+ * fetched, the stored copy is shown as soon as it is read, and the fresh response replaces
+ * it in place and is stored in turn. Without a network only stored pages are shown, and
+ * revalidate() refreshes them once the network is back. A page that could not be loaded
+ * offline is not tried again, and so not reported again, until revalidate() is called.
+ * </p>
+ * <p>
+ * Network fetches go through the process-wide SearchMemo, so a page another screen has
+ * just loaded, or is loading right now, is shared instead of requested again. Requests ask
+ * only for the fields of the pager's projection (FULL unless setProjection says otherwise).
+ * </p>
+ */
+public class SearchPager {
+
+    public static final int PAGE_SIZE = 20;
+    public static final int MAX_PAGES_IN_MEMORY = 5;
+
+    /**
+     * Receives changes to the window of loaded results, always on the main thread.
+     */
+    public interface Listener {
+        void onItemsInserted(int position, List<BookInfo> books);
+
+        void onItemsRemoved(int position, int count);
+
+        void onError(VolleyError error);
+    }
+
+    /**
+     * One page of results and the page index it was requested with.
+     */
+    private static class Page {
+        final int index;
+        List<BookInfo> books;
+        boolean stale; // served from the store and not yet refreshed from the network
+
+        Page(int index, List<BookInfo> books, boolean stale) {
+            this.index = index;
+            this.books = books;
+            this.stale = stale;
+        }
+    }
+
+    private final NetworkClient networkClient;
+    private final SearchResultStore resultStore;
+    private final SearchMemo searchMemo = SearchMemo.getInstance();
+    private final Listener listener;
+    private final ArrayDeque<Page> pages = new ArrayDeque<>();
+    // Pages that failed for lack of a network; scrolling does not retry them until revalidate()
+    private final Set<Integer> unavailablePages = new HashSet<>();
+
+    // The Google Books API, or the macrobenchmark's mock server in benchmark builds
+    private final String searchUrl = BuildConfig.VOLUMES_BASE_URL;
+    private VolumesUrlBuilder.Projection projection = VolumesUrlBuilder.Projection.FULL;
+    private String query;
+    private Object requestTag;
+    private int generation;
+    private boolean loadingNext;
+    private boolean loadingPrevious;
+    private boolean endReached;
+
+    /**
+     * Constructor for SearchPager.
+     * @param networkClient The client used to send requests.
+     * @param resultStore The store that pages are served from first and saved to.
+     * @param listener Receives window changes.
+     */
+    public SearchPager(NetworkClient networkClient, SearchResultStore resultStore, Listener listener) {
+        this.networkClient = networkClient;
+        this.resultStore = resultStore;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts a new search, cancelling any requests for the previous query, clearing the
+     * current window and loading the first page.
+     * @param query The search query.
+     * @return True if a search was started, false if the same query is already shown or loading.
+     */
+    public boolean search(String query) {
+        String normalized = normalize(query);
+        if (normalized.equals(this.query) && (loadingNext || !pages.isEmpty())) {
+            return false;
+        }
+        cancel();
+        int loaded = getItemCount();
+        pages.clear();
+        unavailablePages.clear();
+        if (loaded > 0) {
+            listener.onItemsRemoved(0, loaded);
+        }
+        this.query = normalized;
+        requestTag = new Object();
+        generation++;
+        loadingNext = false;
+        loadingPrevious = false;
+        endReached = false;
+        loadNext();
+        return true;
+    }
+
+    /**
+     * Chooses which volume fields are requested for the following pages. A screen should
+     * pick the smallest projection that covers what it displays.
+     * @param projection The fields to request.
+     */
+    public void setProjection(VolumesUrlBuilder.Projection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Stops waiting for every in-flight request of the current search. Requests that
+     * another pager is still waiting for keep going.
+     */
+    public void cancel() {
+        if (requestTag != null) {
+            searchMemo.cancelAll(requestTag);
+        }
+    }
+
+    /**
+     * Normalizes a query so that equivalent searches share one request and cache entry.
+     */
+    private static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Loads the page after the window, unless one is already loading or the results ended.
+     */
+    public void loadNext() {
+        if (query == null || loadingNext || endReached) {
+            return;
+        }
+        int pageIndex = pages.isEmpty() ? 0 : pages.peekLast().index + 1;
+        if (unavailablePages.contains(pageIndex)) {
+            return;
+        }
+        loadingNext = true;
+        load(pageIndex);
+    }
+
+    /**
+     * Reloads the page before the window if earlier pages were dropped to save memory.
+     */
+    public void loadPrevious() {
+        if (query == null || loadingPrevious || pages.isEmpty() || pages.peekFirst().index == 0) {
+            return;
+        }
+        int pageIndex = pages.peekFirst().index - 1;
+        if (unavailablePages.contains(pageIndex)) {
+            return;
+        }
+        loadingPrevious = true;
+        load(pageIndex);
+    }
+
+    /**
+     * Fetches every page in the window that is only a stored copy, for example once the
+     * network becomes available again. Each fresh page replaces its stored copy in place,
+     * and a page that could not be loaded offline is tried again.
+     */
+    public void revalidate() {
+        if (query == null || !networkClient.isNetworkAvailable()) {
+            return;
+        }
+        for (Page page : pages) {
+            if (page.stale) {
+                fetch(page.index);
+            }
+        }
+        if (!unavailablePages.isEmpty()) {
+            unavailablePages.clear();
+            // Only an empty window retries by itself; otherwise the next scroll does
+            if (pages.isEmpty()) {
+                loadNext();
+            }
+        }
+    }
+
+    /**
+     * @return The number of results currently held in the window.
+     */
+    public int getItemCount() {
+        int count = 0;
+        for (Page page : pages) {
+            count += page.books.size();
+        }
+        return count;
+    }
+
+    /**
+     * Loads a page from the store and the network at the same time. The stored copy is only
+     * shown if the fresh response has not arrived first.
+     */
+    private void load(int pageIndex) {
+        final int requestGeneration = generation;
+        final String pageQuery = query;
+        final String pageProjection = projection.name();
+        final boolean online = networkClient.isNetworkAvailable();
+        if (online) {
+            fetch(pageIndex);
+        }
+        AppExecutors.diskIO().execute(() -> {
+            List<BookInfo> stored = resultStore.get(pageQuery, pageIndex, pageProjection);
+            AppExecutors.mainThread().execute(() -> {
+                if (requestGeneration != generation || findPage(pageIndex) != null) {
+                    return;
+                }
+                if (stored != null) {
+                    onPageLoaded(pageIndex, stored, true);
+                } else if (!online) {
+                    clearLoading(pageIndex);
+                    unavailablePages.add(pageIndex);
+                    listener.onError(new NoConnectionError());
+                }
+            });
+        });
+    }
+
+    private void fetch(int pageIndex) {
+        final int requestGeneration = generation;
+        final String pageQuery = query;
+        final String pageProjection = projection.name();
+        String url = new VolumesUrlBuilder(searchUrl)
+                .query(query)
+                .startIndex(pageIndex * PAGE_SIZE)
+                .maxResults(PAGE_SIZE)
+                .projection(projection)
+                .buildSearch();
+        searchMemo.fetch(networkClient, url, projection, requestTag,
+                (books, shared) -> {
+                    // A list some caller has already received has already been stored
+                    if (!shared) {
+                        AppExecutors.diskIO().execute(() -> resultStore.put(pageQuery, pageIndex, pageProjection, books));
+                    }
+                    if (requestGeneration == generation) {
+                        onPageLoaded(pageIndex, books, false);
+                    }
+                },
+                error -> {
+                    // A failed refresh of a page already shown from the store is not reported
+                    if (requestGeneration == generation && findPage(pageIndex) == null) {
+                        clearLoading(pageIndex);
+                        if (error instanceof NoConnectionError) {
+                            unavailablePages.add(pageIndex);
+                        }
+                        listener.onError(error);
+                    }
+                });
+    }
+
+    private Page findPage(int pageIndex) {
+        for (Page page : pages) {
+            if (page.index == pageIndex) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Places a page into the window. A page that is already loaded (for example a stored
+     * copy followed by its fresh response) is replaced in place; the adapter diffs the two
+     * so only rows that actually changed are rebound.
+     */
+    private void onPageLoaded(int pageIndex, List<BookInfo> received, boolean stale) {
+        clearLoading(pageIndex);
+        List<BookInfo> books = withoutDuplicates(pageIndex, received);
+
+        int position = 0;
+        for (Page page : pages) {
+            if (page.index == pageIndex) {
+                listener.onItemsRemoved(position, page.books.size());
+                page.books = books;
+                page.stale = stale;
+                listener.onItemsInserted(position, books);
+                return;
+            }
+            position += page.books.size();
+        }
+
+        if (pages.isEmpty() || pageIndex == pages.peekLast().index + 1) {
+            int start = getItemCount();
+            pages.addLast(new Page(pageIndex, books, stale));
+            endReached = received.size() < PAGE_SIZE;
+            listener.onItemsInserted(start, books);
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                Page dropped = pages.removeFirst();
+                listener.onItemsRemoved(0, dropped.books.size());
+            }
+        } else if (pageIndex == pages.peekFirst().index - 1) {
+            pages.addFirst(new Page(pageIndex, books, stale));
+            listener.onItemsInserted(0, books);
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                Page dropped = pages.removeLast();
+                endReached = false;
+                listener.onItemsRemoved(getItemCount(), dropped.books.size());
+            }
+        }
+    }
+
+    /**
+     * Drops books whose volume ID is already in the window, as the API can return the same
+     * volume on neighbouring pages when results shift between requests. The received list
+     * is shared with other callers, so a copy is returned if anything is dropped.
+     */
+    private List<BookInfo> withoutDuplicates(int pageIndex, List<BookInfo> books) {
+        Set<String> seen = new HashSet<>();
+        for (Page page : pages) {
+            if (page.index != pageIndex) {
+                for (BookInfo book : page.books) {
+                    seen.add(book.getId());
+                }
+            }
+        }
+        List<BookInfo> unique = null;
+        for (int i = 0; i < books.size(); i++) {
+            BookInfo book = books.get(i);
+            String id = book.getId();
+            boolean duplicate = id != null && !id.isEmpty() && !seen.add(id);
+            if (duplicate && unique == null) {
+                unique = new ArrayList<>(books.subList(0, i));
+            } else if (!duplicate && unique != null) {
+                unique.add(book);
+            }
+        }
+        return (unique != null) ? unique : books;
+    }
+
+    private void clearLoading(int pageIndex) {
+        if (pages.isEmpty() || pageIndex > pages.peekLast().index) {
+            loadingNext = false;
+        } else if (pageIndex < pages.peekFirst().index) {
+            loadingPrevious = false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bookmark.network;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.android.volley.Request;
+import com.example.bookmark.data.MarkedBooksRepository;
+import com.example.bookmark.models.BookInfo;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SummaryUpgrader replaces marked books that are only summaries with their full records,
+ * so the marked books keep their description and links however they were marked. Marked
+ * summaries are queued as they are marked and loaded one at a time at low priority, only
+ * once the main thread is idle and with a pause between requests, so marking a whole page
+ * of results never sends a burst of volume requests. A book opened in BookDetails is
+ * upgraded there as soon as its record loads, ahead of the queue.
+ * <p>
+ * All methods must be called on the main thread.
+ * </p>
+ */
+public class SummaryUpgrader {
+
+    // Pause between two volume requests sent by the queue
+    private static final long REQUEST_GAP_MILLIS = 1000;
+
+    private static SummaryUpgrader instance;
+
+    private final MarkedBooksRepository repository;
+    private final VolumeDetailLoader detailLoader;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Volume IDs waiting to be upgraded, oldest first
+    private final Set<String> queued = new LinkedHashSet<>();
+    // True while a request is in flight or the queue is waiting to send the next one
+    private boolean running;
+
+    private final MarkedBooksRepository.ChangeListener changeListener = new MarkedBooksRepository.ChangeListener() {
+        @Override
+        public void onBookMarked(BookInfo book) {
+            enqueue(book);
+        }
+
+        @Override
+        public void onBookUnmarked(BookInfo book) {
+            queued.remove(book.getId());
+        }
+
+        @Override
+        public void onBooksChanged(List<BookInfo> marked, List<BookInfo> unmarked) {
+            for (BookInfo book : unmarked) {
+                queued.remove(book.getId());
+            }
+            for (BookInfo book : marked) {
+                enqueue(book);
+            }
+        }
+    };
+
+    /**
+     * Returns the shared upgrader, which follows the marked books from then on.
+     * @param context Any context; only the shared repository and loader are retained.
+     * @return The process-wide SummaryUpgrader.
+     */
+    public static synchronized SummaryUpgrader getInstance(Context context) {
+        if (instance == null) {
+            instance = new SummaryUpgrader(MarkedBooksRepository.getInstance(context),
+                    VolumeDetailLoader.getInstance(context));
+        }
+        return instance;
+    }
+
+    private SummaryUpgrader(MarkedBooksRepository repository, VolumeDetailLoader detailLoader) {
+        this.repository = repository;
+        this.detailLoader = detailLoader;
+        repository.addChangeListener(changeListener);
+    }
+
+    /**
+     * Queues every marked book that is still a summary, for example those left over when a
+     * previous load failed. Screens call this when they start.
+     */
+    public void upgradeMarkedSummaries() {
+        for (BookInfo book : repository.getMarkedBooks()) {
+            enqueue(book);
+        }
+    }
+
+    private void enqueue(BookInfo book) {
+        if (book.isSummary() && book.getId() != null && queued.add(book.getId())) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Sends the next request the next time the main thread runs out of work, unless one is
+     * already on its way.
+     */
+    private void scheduleNext() {
+        if (running || queued.isEmpty()) {
+            return;
+        }
+        running = true;
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            upgradeNext();
+            return false;
+        });
+    }
+
+    private void upgradeNext() {
+        Iterator<String> iterator = queued.iterator();
+        if (!iterator.hasNext()) {
+            running = false;
+            return;
+        }
+        String id = iterator.next();
+        iterator.remove();
+        BookInfo marked = repository.getMarkedBook(id);
+        if (marked == null || !marked.isSummary()) {
+            // Unmarked or upgraded elsewhere in the meantime
+            running = false;
+            scheduleNext();
+            return;
+        }
+        // A stale cached record may be followed by the revalidated one; only the first moves the queue on
+        boolean[] answered = new boolean[1];
+        detailLoader.load(id, Request.Priority.LOW, details -> {
+            repository.updateDetails(details);
+            if (!answered[0]) {
+                answered[0] = true;
+                handler.postDelayed(() -> {
+                    running = false;
+                    scheduleNext();
+                }, REQUEST_GAP_MILLIS);
+            }
+        }, error -> {
+            if (!answered[0]) {
+                answered[0] = true;
+                // Most likely offline: stop until a screen asks again instead of failing every summary
+                queued.clear();
+                running = false;
+            }
+        });
+    }
+}
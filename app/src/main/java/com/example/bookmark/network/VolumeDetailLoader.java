@@ -0,0 +1,207 @@
+package com.example.bookmark.network;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.example.bookmark.BuildConfig;
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.AppExecutors;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VolumeDetailLoader fetches the full record of a book that a list only holds as a
+ * summary, through volumes/{id} with the FULL projection. Loaded records are kept in a
+ * bounded LRU sized by their text, so reopening a book or prefetching it while the finger
+ * is still down is answered from memory. Concurrent loads of one volume share a request.
+ * <p>
+ * Like SearchMemo, a load stays in flight until Volley has finished with its request, so a
+ * stale cached copy followed by the revalidated record does not end it early, and only
+ * the final record is kept.
+ * </p>
+ * <p>
+ * All methods must be called on the main thread, where Volley delivers its responses.
+ * </p>
+ */
+public class VolumeDetailLoader {
+
+    // Budget for cached records, counted in characters of text; descriptions dominate
+    private static final int MAX_CACHE_CHARS = 512 * 1024;
+    // Rough size of a record's short fields and object overhead, in characters
+    private static final int RECORD_OVERHEAD_CHARS = 512;
+
+    private static VolumeDetailLoader instance;
+
+    /**
+     * A caller waiting for a volume.
+     */
+    private static final class Waiter {
+        final Response.Listener<BookInfo> listener;
+        final Response.ErrorListener errorListener;
+        // True once the load has delivered something to this caller
+        boolean answered;
+
+        Waiter(Response.Listener<BookInfo> listener, Response.ErrorListener errorListener) {
+            this.listener = listener;
+            this.errorListener = errorListener;
+        }
+    }
+
+    /**
+     * One volume request and everyone waiting for it.
+     */
+    private static final class Call {
+        final List<Waiter> waiters = new ArrayList<>();
+        // The latest record delivered, possibly a stale cached copy, and whether it then failed
+        BookInfo book;
+        boolean failed;
+    }
+
+    private final NetworkClient networkClient;
+    private final LruCache<String, BookInfo> details = new LruCache<String, BookInfo>(MAX_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String id, BookInfo book) {
+            String description = book.getDescription();
+            return RECORD_OVERHEAD_CHARS + ((description != null) ? description.length() : 0);
+        }
+    };
+    private final Map<String, Call> inFlight = new HashMap<>();
+
+    /**
+     * Returns the shared loader.
+     * @param context Any context; only the shared NetworkClient is retained.
+     * @return The process-wide VolumeDetailLoader.
+     */
+    public static synchronized VolumeDetailLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new VolumeDetailLoader(NetworkClient.getInstance(context));
+        }
+        return instance;
+    }
+
+    private VolumeDetailLoader(NetworkClient networkClient) {
+        this.networkClient = networkClient;
+    }
+
+    /**
+     * Returns a full record that has already been loaded.
+     * @param id The volume ID.
+     * @return The record, or null if it has not been loaded or was evicted.
+     */
+    public BookInfo peek(String id) {
+        return (id != null) ? details.get(id) : null;
+    }
+
+    /**
+     * Starts loading a volume at low priority so it is likely cached when the book opens.
+     * Does nothing if the volume is cached or already loading.
+     * @param id The volume ID.
+     */
+    public void prefetch(String id) {
+        if (id == null || id.isEmpty() || details.get(id) != null || inFlight.containsKey(id)) {
+            return;
+        }
+        PerfMetrics.count("detail.prefetch");
+        fetch(id, Request.Priority.LOW, null);
+    }
+
+    /**
+     * Loads a volume's full record. The listener is always called asynchronously, also
+     * when the record is cached.
+     * @param id The volume ID.
+     * @param listener Receives the full record on the main thread.
+     * @param errorListener Receives a network or parse error on the main thread.
+     */
+    public void load(String id, Response.Listener<BookInfo> listener, Response.ErrorListener errorListener) {
+        load(id, Request.Priority.HIGH, listener, errorListener);
+    }
+
+    /**
+     * Loads a volume's full record like load, with a queue priority for a new request:
+     * LOW for background upgrades, HIGH for a screen that is waiting for it.
+     * @param id The volume ID.
+     * @param priority The priority of the request, if one has to be sent.
+     * @param listener Receives the full record on the main thread.
+     * @param errorListener Receives a network or parse error, or an error for a missing ID,
+     *                      on the main thread.
+     */
+    public void load(String id, Request.Priority priority,
+                     Response.Listener<BookInfo> listener, Response.ErrorListener errorListener) {
+        if (id == null || id.isEmpty()) {
+            AppExecutors.mainThread().execute(() -> errorListener.onErrorResponse(new VolleyError("No volume ID")));
+            return;
+        }
+        Waiter waiter = new Waiter(listener, errorListener);
+        BookInfo cached = details.get(id);
+        if (cached != null) {
+            PerfMetrics.count("detail.hit");
+            AppExecutors.mainThread().execute(() -> listener.onResponse(cached));
+            return;
+        }
+        Call call = inFlight.get(id);
+        if (call != null) {
+            PerfMetrics.count("detail.joined");
+            call.waiters.add(waiter);
+            return;
+        }
+        fetch(id, priority, waiter);
+    }
+
+    private void fetch(String id, Request.Priority priority, Waiter firstWaiter) {
+        Call call = new Call();
+        if (firstWaiter != null) {
+            call.waiters.add(firstWaiter);
+        }
+        inFlight.put(id, call);
+        long started = PerfMetrics.now();
+        String url = new VolumesUrlBuilder(BuildConfig.VOLUMES_BASE_URL)
+                .projection(VolumesUrlBuilder.Projection.FULL)
+                .buildVolume(id);
+        networkClient.add(new VolumeDetailRequest(networkClient, url, priority,
+                book -> {
+                    // Keep the requested ID even if the response left it out
+                    book.setId(id);
+                    call.book = book;
+                    for (Waiter waiter : new ArrayList<>(call.waiters)) {
+                        waiter.answered = true;
+                        waiter.listener.onResponse(book);
+                    }
+                },
+                error -> {
+                    call.failed = true;
+                    for (Waiter waiter : new ArrayList<>(call.waiters)) {
+                        waiter.answered = true;
+                        waiter.errorListener.onErrorResponse(error);
+                    }
+                }),
+                () -> finish(id, call, started));
+    }
+
+    /**
+     * Completes a load once Volley has made its last delivery: the final record is cached
+     * and callers that joined after the last delivery receive it.
+     */
+    private void finish(String id, Call call, long started) {
+        PerfMetrics.record(PerfMetrics.DETAIL_REQUEST, started);
+        if (inFlight.get(id) == call) {
+            inFlight.remove(id);
+        }
+        if (call.book == null || call.failed) {
+            return;
+        }
+        details.put(id, call.book);
+        for (Waiter waiter : new ArrayList<>(call.waiters)) {
+            if (!waiter.answered) {
+                waiter.answered = true;
+                waiter.listener.onResponse(call.book);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bookmark.network;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.PerfMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * VolumeDetailRequest fetches a single Google Books volume and parses it with
+ * BookSearchParser on Volley's network dispatcher thread. Prefetches are sent with a low
+ * priority so they never hold up a search page or a details screen that is already open.
+ */
+public class VolumeDetailRequest extends Request<BookInfo> {
+
+    private final NetworkClient networkClient;
+    private final Priority priority;
+    private final Object lock = new Object();
+    private Response.Listener<BookInfo> listener;
+
+    /**
+     * Constructor for VolumeDetailRequest.
+     * @param networkClient The client whose cache policy applies.
+     * @param url The volume URL to GET.
+     * @param priority The queue priority, e.g. LOW for a prefetch.
+     * @param listener Receives the parsed book on the main thread.
+     * @param errorListener Receives any network or parse error on the main thread.
+     */
+    public VolumeDetailRequest(NetworkClient networkClient, String url, Priority priority,
+                               Response.Listener<BookInfo> listener,
+                               Response.ErrorListener errorListener) {
+        super(Method.GET, url, errorListener);
+        this.networkClient = networkClient;
+        this.priority = priority;
+        this.listener = listener;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    protected Response<BookInfo> parseNetworkResponse(NetworkResponse response) {
+        Charset charset = Charset.forName(HttpHeaderParser.parseCharset(response.headers, "UTF-8"));
+        long started = PerfMetrics.start(PerfMetrics.DETAIL_PARSE);
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(response.data), charset)) {
+            BookInfo book = BookSearchParser.parseVolume(reader);
+            if (book == null) {
+                return Response.error(new ParseError(response));
+            }
+            return Response.success(book, networkClient.cacheEntryFor(response));
+        } catch (IOException | RuntimeException e) {
+            return Response.error(new ParseError(e));
+        } finally {
+            PerfMetrics.stop(PerfMetrics.DETAIL_PARSE, started);
+        }
+    }
+
+    @Override
+    protected void deliverResponse(BookInfo response) {
+        Response.Listener<BookInfo> listener;
+        synchronized (lock) {
+            listener = this.listener;
+        }
+        if (listener != null) {
+            listener.onResponse(response);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        synchronized (lock) {
+            listener = null;
+        }
+    }
+}
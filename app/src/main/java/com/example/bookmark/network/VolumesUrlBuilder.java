@@ -0,0 +1,136 @@
+package com.example.bookmark.network;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * VolumesUrlBuilder builds Google Books "volumes" URLs with a fields= projection, so the
+ * API only returns the parts of each volume a screen actually reads instead of the full
+ * resource with its accessInfo, searchInfo, layerInfo and so on.
+ * <p>
+ * Each screen picks a Projection: a list row needs a handful of short fields, while the
+ * details screen also needs the description and links. The same projection is used for a
+ * search, where it applies to every element of "items", and for a single volume.
+ * </p>
+ */
+public final class VolumesUrlBuilder {
+
+    /**
+     * The volume fields requested, in the API's partial-response syntax.
+     */
+    public enum Projection {
+        /** What a list row shows or shares: title, authors, publisher, date, page count, cover and preview link. */
+        SUMMARY("id,volumeInfo(title,authors,publisher,publishedDate,pageCount,imageLinks/thumbnail,previewLink)"),
+        /** Every field BookSearchParser reads into a BookInfo. */
+        FULL("id,volumeInfo(title,subtitle,authors,publisher,publishedDate,description,pageCount,"
+                + "imageLinks/thumbnail,previewLink,infoLink),saleInfo/buyLink");
+
+        private final String volumeFields;
+
+        Projection(String volumeFields) {
+            this.volumeFields = volumeFields;
+        }
+
+        /**
+         * @return The fields selector for a single volume resource.
+         */
+        public String volumeFields() {
+            return volumeFields;
+        }
+
+        /**
+         * @return The fields selector for a search response.
+         */
+        public String searchFields() {
+            return "items(" + volumeFields + ")";
+        }
+    }
+
+    private final String baseUrl;
+    private Projection projection = Projection.FULL;
+    private String query;
+    private int startIndex;
+    private int maxResults;
+
+    /**
+     * Constructor for VolumesUrlBuilder.
+     * @param baseUrl The volumes endpoint, normally BuildConfig.VOLUMES_BASE_URL.
+     */
+    public VolumesUrlBuilder(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @param projection The fields to request; FULL if not set.
+     * @return This builder.
+     */
+    public VolumesUrlBuilder projection(Projection projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    /**
+     * @param query The search terms.
+     * @return This builder.
+     */
+    public VolumesUrlBuilder query(String query) {
+        this.query = query;
+        return this;
+    }
+
+    /**
+     * @param startIndex The index of the first result, for paging.
+     * @return This builder.
+     */
+    public VolumesUrlBuilder startIndex(int startIndex) {
+        this.startIndex = startIndex;
+        return this;
+    }
+
+    /**
+     * @param maxResults The number of results per page; the API default if not set.
+     * @return This builder.
+     */
+    public VolumesUrlBuilder maxResults(int maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    /**
+     * Builds a search URL from the query, paging and projection.
+     * @return The URL.
+     */
+    public String buildSearch() {
+        if (query == null) {
+            throw new IllegalStateException("A search needs a query");
+        }
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append("?q=").append(encode(query))
+                .append("&startIndex=").append(startIndex);
+        if (maxResults > 0) {
+            url.append("&maxResults=").append(maxResults);
+        }
+        // The selector only uses characters that are legal in a query string
+        return url.append("&fields=").append(projection.searchFields()).toString();
+    }
+
+    /**
+     * Builds the URL of a single volume with the projection.
+     * @param volumeId The volume ID.
+     * @return The URL.
+     */
+    public String buildVolume(String volumeId) {
+        return baseUrl + "/" + encode(volumeId) + "?fields=" + projection.volumeFields();
+    }
+
+    /**
+     * Percent-encodes a value as UTF-8, with spaces as %20.
+     */
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is always supported", e);
+        }
+    }
+}
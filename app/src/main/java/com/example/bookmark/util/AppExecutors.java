@@ -0,0 +1,59 @@
+package com.example.bookmark.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * AppExecutors holds the process-wide executors used to move work off and back onto the
+ * main thread: a single disk thread, so file operations never run concurrently with each
+ * other, a background thread for CPU work such as text layout, and an executor that posts
+ * to the main looper.
+ */
+public final class AppExecutors {
+
+    private static final ScheduledExecutorService DISK_IO = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookmark-disk-io");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private static final ExecutorService COMPUTATION = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookmark-computation");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_THREAD = MAIN_HANDLER::post;
+
+    private AppExecutors() {
+    }
+
+    /**
+     * @return The executor for disk reads and writes; tasks run one at a time, in order,
+     * and can be delayed so that bursts of writes are batched.
+     */
+    public static ScheduledExecutorService diskIO() {
+        return DISK_IO;
+    }
+
+    /**
+     * @return The executor for CPU-bound work that must stay off the main thread; tasks run
+     * one at a time, in order, and never wait behind disk I/O.
+     */
+    public static ExecutorService computation() {
+        return COMPUTATION;
+    }
+
+    /**
+     * @return An executor that runs tasks on the main thread.
+     */
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.bookmark.util;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.util.LruCache;
+
+import androidx.core.text.HtmlCompat;
+import androidx.core.text.PrecomputedTextCompat;
+
+/**
+ * DescriptionTextCache turns book descriptions into PrecomputedTextCompat off the main
+ * thread, so BookDetails never measures thousands of characters of text before its first
+ * frame. Descriptions may contain simple HTML, which is converted to styled text first.
+ * <p>
+ * A long description gets a short collapsed version as well as the full one. The collapsed
+ * text is computed first and delivered straight away; the full text follows on the same
+ * thread so that expanding is usually instant. Results are cached per book ID in an LRU
+ * bounded by characters, so reopening a book shows its description without any work.
+ * </p>
+ */
+public final class DescriptionTextCache {
+
+    // Descriptions longer than this are collapsed to about this many characters
+    public static final int COLLAPSED_CHARS = 400;
+    // Budget for cached text, in characters of both versions
+    private static final int MAX_CACHE_CHARS = 128 * 1024;
+
+    private static final DescriptionTextCache INSTANCE = new DescriptionTextCache();
+
+    /**
+     * Receives a book's description text on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param texts The description, with its full version still missing if it is
+         *              collapsible and was not asked for.
+         */
+        void onDescriptionReady(Texts texts);
+    }
+
+    /**
+     * The precomputed versions of one description, for one set of text metrics.
+     */
+    public static final class Texts {
+        final String source;
+        final PrecomputedTextCompat.Params params;
+        // Null if the description is short enough to show in full
+        public final PrecomputedTextCompat collapsed;
+        // Null until computed
+        public final PrecomputedTextCompat full;
+
+        Texts(String source, PrecomputedTextCompat.Params params,
+              PrecomputedTextCompat collapsed, PrecomputedTextCompat full) {
+            this.source = source;
+            this.params = params;
+            this.collapsed = collapsed;
+            this.full = full;
+        }
+
+        /**
+         * @return True if the description has a collapsed version to toggle to and from.
+         */
+        public boolean isCollapsible() {
+            return collapsed != null;
+        }
+
+        boolean matches(String description, PrecomputedTextCompat.Params params) {
+            return source.equals(description) && this.params.equals(params);
+        }
+
+        int chars() {
+            return ((collapsed != null) ? collapsed.length() : 0) + ((full != null) ? full.length() : 0);
+        }
+    }
+
+    private final LruCache<String, Texts> cache = new LruCache<String, Texts>(MAX_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String id, Texts texts) {
+            return Math.max(1, texts.chars());
+        }
+    };
+
+    /**
+     * @return The shared cache.
+     */
+    public static DescriptionTextCache getInstance() {
+        return INSTANCE;
+    }
+
+    private DescriptionTextCache() {
+    }
+
+    /**
+     * Returns the cached text of a description, if it was computed for the same text and metrics.
+     * @param id The book's volume ID.
+     * @param description The description as stored in the book.
+     * @param params The text metrics of the TextView, from TextViewCompat.getTextMetricsParams.
+     * @return The texts, or null if they have to be loaded.
+     */
+    public Texts peek(String id, String description, PrecomputedTextCompat.Params params) {
+        Texts texts = cache.get(id);
+        return (texts != null && texts.matches(description, params)) ? texts : null;
+    }
+
+    /**
+     * Computes a description's text on the computation thread and delivers it on the main thread.
+     * @param id The book's volume ID.
+     * @param description The description as stored in the book; must not be empty.
+     * @param params The text metrics of the TextView.
+     * @param expanded True if the full version is needed before the listener is called.
+     * @param listener Receives the texts.
+     */
+    public void load(String id, String description, PrecomputedTextCompat.Params params,
+                     boolean expanded, Listener listener) {
+        AppExecutors.computation().execute(() -> {
+            Texts texts = peek(id, description, params);
+            CharSequence styled = null;
+            if (texts == null || (expanded && texts.full == null)) {
+                long started = PerfMetrics.start(PerfMetrics.DETAIL_TEXT);
+                styled = toStyledText(description);
+                PrecomputedTextCompat collapsed;
+                if (texts != null) {
+                    collapsed = texts.collapsed;
+                } else if (styled.length() > COLLAPSED_CHARS) {
+                    collapsed = PrecomputedTextCompat.create(collapse(styled), params);
+                } else {
+                    collapsed = null;
+                }
+                PrecomputedTextCompat full = (collapsed == null || expanded)
+                        ? PrecomputedTextCompat.create(styled, params)
+                        : null;
+                texts = new Texts(description, params, collapsed, full);
+                cache.put(id, texts);
+                PerfMetrics.stop(PerfMetrics.DETAIL_TEXT, started);
+            }
+            Texts ready = texts;
+            AppExecutors.mainThread().execute(() -> listener.onDescriptionReady(ready));
+
+            // Compute the full version for a later expand while the collapsed one is shown
+            if (texts.full == null) {
+                PrecomputedTextCompat full = PrecomputedTextCompat.create(
+                        (styled != null) ? styled : toStyledText(description), params);
+                cache.put(id, new Texts(description, params, texts.collapsed, full));
+            }
+        });
+    }
+
+    /**
+     * Converts a description that contains HTML tags or entities to styled text.
+     */
+    static CharSequence toStyledText(String description) {
+        if (description.indexOf('<') < 0 && description.indexOf('&') < 0) {
+            return description;
+        }
+        Spanned html = HtmlCompat.fromHtml(description, HtmlCompat.FROM_HTML_MODE_COMPACT);
+        int end = html.length();
+        while (end > 0 && Character.isWhitespace(html.charAt(end - 1))) {
+            end--;
+        }
+        return html.subSequence(0, end);
+    }
+
+    /**
+     * Cuts text to about COLLAPSED_CHARS at a word boundary and appends an ellipsis.
+     */
+    static CharSequence collapse(CharSequence text) {
+        int end = COLLAPSED_CHARS;
+        while (end > COLLAPSED_CHARS / 2 && !Character.isWhitespace(text.charAt(end))) {
+            end--;
+        }
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return new SpannableStringBuilder(text, 0, end).append('\u2026');
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.bookmark.util;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.example.bookmark.BuildConfig;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PerfMetrics records how long the app's hot paths take. Each timed span is emitted as an
+ * android.os.Trace section, so it shows up in system traces and macrobenchmarks, and is
+ * added to a per-metric histogram and to a fixed-size ring buffer of recent events.
+ * Counters track how often something happens, such as memo hits. A text report of all of
+ * it can be dumped to a file.
+ * <p>
+ * Recording is on in debug builds (BuildConfig.PERF_METRICS) and can be switched at run
+ * time with setEnabled. While it is off every method returns after a single volatile read,
+ * so instrumented code pays next to nothing. Spans that start and stop on one thread use
+ * start and stop; spans that finish on another thread, such as network requests, use now
+ * and record, which skip the Trace section because sections cannot cross threads.
+ * </p>
+ */
+public final class PerfMetrics {
+
+    // Metric names
+    public static final String SEARCH_REQUEST = "search.request";
+    public static final String SEARCH_PARSE = "search.parse";
+    public static final String DETAIL_REQUEST = "detail.request";
+    public static final String DETAIL_PARSE = "detail.parse";
+    public static final String DETAIL_TEXT = "detail.text";
+    public static final String MARKED_LOAD = "marked.load";
+    public static final String MARKED_SAVE = "marked.save";
+    public static final String MARKED_SORT = "marked.sort";
+    public static final String ROW_BIND = "adapter.bind";
+    public static final String IMAGE_LOAD = "image.load";
+
+    private static final int RING_CAPACITY = 1024;
+    // Histogram buckets are powers of two in microseconds: [0,1), [1,2), [2,4) ..., the last one open-ended
+    private static final int BUCKETS = 34;
+
+    private static volatile boolean enabled = BuildConfig.PERF_METRICS;
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+    // Ring buffer of the most recent spans, oldest overwritten first; guarded by RING_LOCK
+    private static final Object RING_LOCK = new Object();
+    private static final String[] ringNames = new String[RING_CAPACITY];
+    private static final String[] ringThreads = new String[RING_CAPACITY];
+    private static final long[] ringEndMillis = new long[RING_CAPACITY];
+    private static final long[] ringNanos = new long[RING_CAPACITY];
+    private static long ringTotal;
+
+    private PerfMetrics() {
+    }
+
+    /**
+     * Durations of one metric, bucketed by their binary logarithm in microseconds.
+     */
+    private static final class Histogram {
+        final long[] buckets = new long[BUCKETS];
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        synchronized void add(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = (micros <= 0) ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        /**
+         * @return The upper bound of the bucket holding the given fraction of samples, in microseconds.
+         */
+        synchronized long percentileMicros(double fraction) {
+            long target = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        synchronized String summary() {
+            return String.format(Locale.ROOT, "n=%d mean=%.3fms p50<%.3fms p90<%.3fms p99<%.3fms max=%.3fms",
+                    count, (count > 0) ? totalNanos / 1e6 / count : 0.0,
+                    percentileMicros(0.5) / 1e3, percentileMicros(0.9) / 1e3, percentileMicros(0.99) / 1e3,
+                    maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * @return True if spans and counters are being recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Data already recorded is kept.
+     * @param enabled True to record.
+     */
+    public static void setEnabled(boolean enabled) {
+        PerfMetrics.enabled = enabled;
+    }
+
+    /**
+     * Starts a span on the current thread and opens a Trace section for it. Must be paired
+     * with stop on the same thread, normally in a finally block.
+     * @param name The metric name, e.g. SEARCH_PARSE.
+     * @return The start time to pass to stop, or 0 when recording is off.
+     */
+    public static long start(String name) {
+        if (!enabled) {
+            return 0;
+        }
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends a span started with start, closing its Trace section and recording its duration.
+     * @param name The metric name passed to start.
+     * @param startNanos The value returned by start.
+     */
+    public static void stop(String name, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        Trace.endSection();
+        add(name, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Starts a span that may finish on another thread.
+     * @return The start time to pass to record, or 0 when recording is off.
+     */
+    public static long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span started with now, from any thread.
+     * @param name The metric name, e.g. SEARCH_REQUEST.
+     * @param startNanos The value returned by now.
+     */
+    public static void record(String name, long startNanos) {
+        if (startNanos != 0) {
+            add(name, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Adds one to a counter.
+     * @param name The counter name, e.g. "search.memo_hit".
+     */
+    public static void count(String name) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = COUNTERS.get(name);
+        if (counter == null) {
+            counter = COUNTERS.computeIfAbsent(name, key -> new AtomicLong());
+        }
+        long value = counter.incrementAndGet();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(name, value);
+        }
+    }
+
+    private static void add(String name, long nanos) {
+        Histogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            histogram = HISTOGRAMS.computeIfAbsent(name, key -> new Histogram());
+        }
+        histogram.add(nanos);
+        synchronized (RING_LOCK) {
+            int slot = (int) (ringTotal % RING_CAPACITY);
+            ringNames[slot] = name;
+            ringThreads[slot] = Thread.currentThread().getName();
+            ringEndMillis[slot] = System.currentTimeMillis();
+            ringNanos[slot] = nanos;
+            ringTotal++;
+        }
+    }
+
+    /**
+     * Builds a text report of every histogram and counter followed by the recent spans,
+     * oldest first.
+     * @return The report.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("# Histograms\n");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            report.append(entry.getKey()).append(' ').append(entry.getValue().summary()).append('\n');
+        }
+        report.append("\n# Counters\n");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            report.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        report.append("\n# Recent spans\n");
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS", Locale.ROOT);
+        synchronized (RING_LOCK) {
+            long first = Math.max(0, ringTotal - RING_CAPACITY);
+            for (long i = first; i < ringTotal; i++) {
+                int slot = (int) (i % RING_CAPACITY);
+                report.append(time.format(new Date(ringEndMillis[slot]))).append(' ')
+                        .append(ringNames[slot]).append(' ')
+                        .append(String.format(Locale.ROOT, "%.3fms", ringNanos[slot] / 1e6)).append(' ')
+                        .append(ringThreads[slot]).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes the report to a new timestamped file. Must be called off the main thread,
+     * for example on AppExecutors.diskIO().
+     * @param directory The directory to write to; it is created if needed.
+     * @return The written file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static File dump(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        File file = new File(directory, "perf-" + stamp + ".txt");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(report());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bookmark.util;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * StringPool is a process-wide dictionary of strings that many books share, such as
+ * publisher and author names. Interning a string returns the pool's copy of an equal one,
+ * so a library of thousands of books by a few hundred authors keeps a few hundred name
+ * strings instead of one per book.
+ * <p>
+ * The pool only holds its strings weakly: a name no book refers to any more is dropped at
+ * the next garbage collection, unlike String.intern. It is safe to use from any thread.
+ * </p>
+ */
+public final class StringPool {
+
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * Returns the pooled copy of a string, adding the string itself if there is none.
+     * @param value The string; may be null.
+     * @return An equal string shared with every other caller, or null for null.
+     */
+    public static String intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return (value == null) ? null : "";
+        }
+        synchronized (POOL) {
+            WeakReference<String> ref = POOL.get(value);
+            String pooled = (ref != null) ? ref.get() : null;
+            if (pooled == null) {
+                POOL.put(value, new WeakReference<>(value));
+                pooled = value;
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * @return The number of distinct strings currently pooled, including ones awaiting collection.
+     */
+    public static int size() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+
+    /**
+     * Gson adapter for string fields that should be interned when read, e.g.
+     * {@code @JsonAdapter(StringPool.InternAdapter.class)}. Writing is unchanged.
+     */
+    public static final class InternAdapter extends TypeAdapter<String> {
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return intern(in.nextString());
+        }
+    }
+}
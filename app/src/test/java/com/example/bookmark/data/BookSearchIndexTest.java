@@ -0,0 +1,102 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for BookSearchIndex. Query and update times for libraries of up to 50,000
+ * books are measured by the :benchmark module's SearchIndexBenchmark.
+ */
+public class BookSearchIndexTest {
+
+    @Test
+    public void search_matchesPrefixesAcrossFields() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add("a", book("a", "The Hobbit", "J. R. R. Tolkien", "A journey there and back again."));
+        index.add("b", book("b", "Dune", "Frank Herbert", "Spice and sand."));
+
+        assertEquals(Arrays.asList("a"), ids(index.search("tolk")));
+        assertEquals(Arrays.asList("b"), ids(index.search("SPICE")));
+        assertEquals(Arrays.asList("a"), ids(index.search("hob journey")));
+        assertTrue(index.search("hobbit spice").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+    }
+
+    @Test
+    public void search_ranksTitleAboveDescription() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add("desc", book("desc", "Cooking", "Someone", "Includes a chapter on dragons."));
+        index.add("title", book("title", "Dragons of Autumn", "Someone Else", "Fantasy."));
+
+        assertEquals(Arrays.asList("title", "desc"), ids(index.search("dragons")));
+    }
+
+    @Test
+    public void search_foldsAccents() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add("z", book("z", "Germinal", "Émile Zola", ""));
+
+        assertEquals(Arrays.asList("z"), ids(index.search("emile")));
+        assertEquals(Arrays.asList("z"), ids(index.search("Émi")));
+    }
+
+    @Test
+    public void remove_dropsBookFromResults() {
+        BookSearchIndex index = new BookSearchIndex();
+        Map<String, BookInfo> books = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            books.put("k" + i, book("k" + i, "Shared Title " + i, "Author", ""));
+        }
+        index.reset(books);
+
+        // Removing most books also renumbers the remaining ones
+        for (int i = 0; i < 150; i++) {
+            index.remove("k" + i);
+        }
+        List<BookInfo> results = index.search("shared");
+        assertEquals(50, results.size());
+        // Ties keep the newest marks first
+        assertEquals("k199", results.get(0).getId());
+        assertEquals(Arrays.asList("k160"), ids(index.search("160")));
+        assertTrue(index.search("10").isEmpty());
+    }
+
+    @Test
+    public void update_keepsRankAmongTies() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add("a", book("a", "Dune", "Frank Herbert", ""));
+        index.add("b", book("b", "Dune", "Frank Herbert", "Sand"));
+        index.add("c", book("c", "Dune", "Frank Herbert", ""));
+        assertEquals(Arrays.asList("c", "b", "a"), ids(index.search("dune")));
+
+        index.update("a", book("a", "Dune", "Frank Herbert", "Spice and sandworms."));
+
+        // The updated book is still the oldest of three equal matches
+        assertEquals(Arrays.asList("c", "b", "a"), ids(index.search("dune")));
+        assertEquals(Arrays.asList("a"), ids(index.search("spice")));
+        assertEquals(Arrays.asList("b", "a"), ids(index.search("sand")));
+    }
+
+    private static BookInfo book(String id, String title, String author, String description) {
+        return new BookInfo(id, title, "", new ArrayList<>(Arrays.asList(author)), "Publisher", "2001",
+                description, 100, "", "", "", "");
+    }
+
+    private static List<String> ids(List<BookInfo> books) {
+        List<String> ids = new ArrayList<>();
+        for (BookInfo book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.PerfMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for JournalWriter's write-behind: coalescing, flushing and compaction, on a
+ * real single-threaded executor and a journal in a temporary directory.
+ */
+public class JournalWriterTest {
+
+    private static final long DELAY_MILLIS = 50;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ScheduledExecutorService executor;
+    private File file;
+    private RecordingJournal journal;
+
+    @Before
+    public void setUp() {
+        // Trace sections are only available on a device
+        PerfMetrics.setEnabled(false);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        file = new File(tempFolder.getRoot(), "marked_books.jsonl");
+        journal = new RecordingJournal(file);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void enqueueWrite_coalescesRepeatedTogglesIntoOneWrite() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+
+        writer.enqueueWrite("a", book("a"));
+        writer.enqueueWrite("b", book("b"));
+        writer.enqueueWrite("a", null);
+        writer.enqueueWrite("c", book("c"));
+        writer.enqueueWrite("a", book("a"));
+        writer.enqueueWrite("b", null);
+        awaitScheduledWrites();
+
+        assertEquals(1, journal.batches.size());
+        Map<String, BookInfo> batch = journal.batches.get(0);
+        // Each book is written once, at the position of its last change
+        assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<>(batch.keySet()));
+        assertNotNull(batch.get("a"));
+        assertNull(batch.get("b"));
+        assertEquals(Arrays.asList("c", "a"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void enqueueUpdate_isFoldedIntoQueuedPut() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+        writer.enqueueWrite("a", book("a"));
+        awaitScheduledWrites();
+
+        writer.enqueueWrite("b", book("b"));
+        writer.enqueueUpdate("b", book("b"));
+        writer.enqueueUpdate("a", book("a"));
+        awaitScheduledWrites();
+
+        assertEquals(2, journal.batches.size());
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(journal.batches.get(1).keySet()));
+        assertEquals(Collections.singleton("a"), journal.updates.get(1));
+    }
+
+    @Test
+    public void flush_racingScheduledWriteWritesEachChangeOnce() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+
+        writer.enqueueWrite("a", book("a"));
+        writer.flush();
+        awaitScheduledWrites();
+
+        // The scheduled write ran after the flush and found nothing left
+        assertEquals(1, journal.batches.size());
+
+        // A change queued while a flush is on its way is written by one of the two
+        writer.enqueueWrite("b", book("b"));
+        writer.flush();
+        writer.enqueueWrite("c", book("c"));
+        awaitScheduledWrites();
+
+        int written = 0;
+        for (Map<String, BookInfo> batch : journal.batches) {
+            written += batch.size();
+        }
+        assertEquals(3, written);
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void flush_returnsOnceChangesAreOnDisk() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+
+        writer.enqueueWrite("a", book("a"));
+        writer.enqueueWrite("b", book("b"));
+
+        assertTrue(writer.flush());
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void flush_reportsFailedWrite() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+        journal.failuresLeft = 1;
+
+        writer.enqueueWrite("a", book("a"));
+
+        assertFalse(writer.flush());
+        awaitBatches(1);
+        assertEquals(Collections.singletonList("a"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void failedWrite_isRetriedWithoutOverwritingNewerChanges() throws Exception {
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, Collections::emptyList);
+        journal.failuresLeft = 2;
+
+        writer.enqueueWrite("a", book("a"));
+        writer.enqueueWrite("b", book("b"));
+        awaitScheduledWrites();
+        assertEquals(1, journal.failures);
+
+        // Changed again while the failed batch waits for its retry
+        writer.enqueueWrite("b", null);
+        BookInfo details = book("a");
+        details.setDescription("Full description");
+        writer.enqueueUpdate("a", details);
+        writer.enqueueWrite("c", book("c"));
+        awaitBatches(1);
+
+        assertEquals(2, journal.failures);
+        // The unwritten put of "a" carries the newer details and keeps its place
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(journal.batches.get(0).keySet()));
+        assertTrue(journal.updates.get(0).isEmpty());
+        Map<String, BookInfo> loaded = new MarkedBooksJournal(file).load();
+        assertEquals(Arrays.asList("a", "c"), new ArrayList<>(loaded.keySet()));
+        assertEquals("Full description", loaded.get("a").getDescription());
+    }
+
+    @Test
+    public void compaction_rewriteKeepsSameBooks() throws Exception {
+        Map<String, BookInfo> live = new LinkedHashMap<>();
+        JournalWriter writer = new JournalWriter(journal, executor, DELAY_MILLIS, () -> new ArrayList<>(live.values()));
+        for (int i = 0; i < 10; i++) {
+            live.put("k" + i, book("k" + i));
+            writer.enqueueWrite("k" + i, live.get("k" + i));
+        }
+        writer.flush();
+        awaitScheduledWrites();
+
+        // Toggle books one batch at a time until superseded records force a compaction
+        for (int round = 0; round < 150; round++) {
+            String key = "k" + (round * 7 % 10);
+            if (live.remove(key) != null) {
+                writer.enqueueWrite(key, null);
+            } else {
+                live.put(key, book(key));
+                writer.enqueueWrite(key, live.get(key));
+            }
+            writer.flush();
+            awaitScheduledWrites();
+        }
+
+        assertTrue(journal.rewrites > 0);
+        assertEquals(new ArrayList<>(live.keySet()), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+        assertTrue(Files.readAllLines(file.toPath()).size() < 150);
+    }
+
+    /**
+     * Waits until every write scheduled so far, and any flush, has run.
+     */
+    private void awaitScheduledWrites() throws Exception {
+        executor.schedule(() -> { }, DELAY_MILLIS * 2, TimeUnit.MILLISECONDS).get();
+    }
+
+    /**
+     * Waits until the journal has accepted the given number of batches, retries included.
+     */
+    private void awaitBatches(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.submit(() -> journal.batches.size()).get() < count) {
+            assertTrue("Timed out waiting for a journal write", System.currentTimeMillis() < deadline);
+            Thread.sleep(DELAY_MILLIS);
+        }
+    }
+
+    private static BookInfo book(String id) {
+        return new BookInfo(id, "Title " + id, "", Collections.singletonList("Author"), "Publisher",
+                "2001", "", 100, "", "", "", "");
+    }
+
+    /**
+     * A journal that records every batch it appends and counts its rewrites. It can be told
+     * to fail a number of appends first.
+     */
+    private static final class RecordingJournal extends MarkedBooksJournal {
+        final List<Map<String, BookInfo>> batches = new ArrayList<>();
+        final List<Set<String>> updates = new ArrayList<>();
+        int rewrites;
+        volatile int failuresLeft;
+        volatile int failures;
+
+        RecordingJournal(File file) {
+            super(file);
+        }
+
+        @Override
+        public void appendChanges(Map<String, BookInfo> changes, Set<String> updated) throws IOException {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                failures++;
+                throw new IOException("No space left on device");
+            }
+            batches.add(new LinkedHashMap<>(changes));
+            updates.add(new HashSet<>(updated));
+            super.appendChanges(changes, updated);
+        }
+
+        @Override
+        public void rewrite(Collection<BookInfo> liveBooks) throws IOException {
+            rewrites++;
+            super.rewrite(liveBooks);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for MarkedBooksJournal: replay of its records, recovery from a damaged last
+ * line and the migration of books stored in SharedPreferences by older versions.
+ */
+public class MarkedBooksJournalTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void load_missingFileIsEmpty() throws IOException {
+        assertTrue(new MarkedBooksJournal(journalFile()).load().isEmpty());
+    }
+
+    @Test
+    public void load_replaysPutsAndRemovesInOrder() throws IOException {
+        File file = journalFile();
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        journal.appendChanges(changes(book("a"), book("b"), book("c")));
+        journal.appendChanges(removals("b", "missing"));
+        journal.appendChanges(changes(book("b")));
+        journal.appendChanges(removals("a"));
+
+        Map<String, BookInfo> loaded = new MarkedBooksJournal(file).load();
+
+        // The re-marked book comes after the books that stayed marked
+        assertEquals(listOf("c", "b"), new ArrayList<>(loaded.keySet()));
+        assertEquals("Title b", loaded.get("b").getTitle());
+    }
+
+    @Test
+    public void load_removeByTitleDropsBookSavedWithoutId() throws IOException {
+        File file = journalFile();
+        BookInfo untitled = book("");
+        untitled.setTitle("Old Book");
+        writeLines(file, line("put", untitled), line("put", book("a")), "{\"op\":\"remove\",\"key\":\"Old Book\"}");
+
+        Map<String, BookInfo> loaded = new MarkedBooksJournal(file).load();
+
+        assertEquals(listOf("a"), new ArrayList<>(loaded.keySet()));
+    }
+
+    @Test
+    public void load_skipsTruncatedLastLineAndRepairsJournal() throws IOException {
+        File file = journalFile();
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        journal.appendChanges(changes(book("a"), book("b")));
+        // A crash in the middle of an append leaves half a record and no newline
+        String truncated = line("put", book("c"));
+        appendText(file, truncated.substring(0, truncated.length() / 2));
+
+        MarkedBooksJournal reopened = new MarkedBooksJournal(file);
+        assertEquals(listOf("a", "b"), new ArrayList<>(reopened.load().keySet()));
+
+        // The damaged line is gone, so the next record starts on a line of its own
+        reopened.appendChanges(changes(book("d")));
+        assertEquals(listOf("a", "b", "d"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("\"c\""));
+    }
+
+    @Test
+    public void load_skipsCorruptLines() throws IOException {
+        File file = journalFile();
+        writeLines(file, line("put", book("a")), "not json", "{}", "[1,2]", line("put", book("b")));
+
+        Map<String, BookInfo> loaded = new MarkedBooksJournal(file).load();
+
+        assertEquals(listOf("a", "b"), new ArrayList<>(loaded.keySet()));
+    }
+
+    @Test
+    public void migrateLegacy_mergesPreferencesIntoJournal() throws IOException {
+        File file = journalFile();
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        journal.appendChanges(changes(book("a")));
+        LinkedHashMap<String, BookInfo> books = journal.load();
+
+        BookInfo staleCopy = book("a");
+        staleCopy.setTitle("Stale title");
+        // Books saved before IDs were stored are identified by the ID in their links
+        BookInfo linkOnly = book("");
+        linkOnly.setInfoLink("http://books.google.com/books?id=link123&hl=en");
+        String legacyJson = new Gson().toJson(Arrays.asList(staleCopy, book("b"), linkOnly));
+
+        journal.migrateLegacy(legacyJson, books);
+
+        assertEquals(listOf("a", "b", "link123"), new ArrayList<>(books.keySet()));
+        Map<String, BookInfo> reloaded = new MarkedBooksJournal(file).load();
+        assertEquals(listOf("a", "b", "link123"), new ArrayList<>(reloaded.keySet()));
+        assertEquals("Title a", reloaded.get("a").getTitle());
+    }
+
+    @Test
+    public void migrateLegacy_emptyValueKeepsJournal() throws IOException {
+        File file = journalFile();
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        journal.appendChanges(changes(book("a")));
+        LinkedHashMap<String, BookInfo> books = journal.load();
+
+        journal.migrateLegacy("[]", books);
+
+        assertEquals(listOf("a"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void load_updateKeepsPositionWhilePutMovesToEnd() throws IOException {
+        File file = journalFile();
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        journal.appendChanges(changes(book("a"), book("b"), book("c")));
+        BookInfo details = book("a");
+        details.setDescription("Full record");
+        journal.appendChanges(changes(details), Collections.singleton("a"));
+
+        Map<String, BookInfo> loaded = new MarkedBooksJournal(file).load();
+
+        assertEquals(listOf("a", "b", "c"), new ArrayList<>(loaded.keySet()));
+        assertEquals("Full record", loaded.get("a").getDescription());
+
+        journal.appendChanges(changes(book("b")));
+        assertEquals(listOf("a", "c", "b"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    private File journalFile() {
+        return new File(tempFolder.getRoot(), "marked_books.jsonl");
+    }
+
+    private static String line(String op, BookInfo book) {
+        return "{\"op\":\"" + op + "\",\"book\":" + new Gson().toJson(book) + "}";
+    }
+
+    private static void writeLines(File file, String... lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendText(File file, String text) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+    }
+
+    private static Map<String, BookInfo> removals(String... keys) {
+        Map<String, BookInfo> changes = new LinkedHashMap<>();
+        for (String key : keys) {
+            changes.put(key, null);
+        }
+        return changes;
+    }
+
+    private static BookInfo book(String id) {
+        return new BookInfo(id, "Title " + id, "", Collections.singletonList("Author"), "Publisher",
+                "2001", "", 100, "", "", "", "");
+    }
+
+    private static Map<String, BookInfo> changes(BookInfo... books) {
+        Map<String, BookInfo> changes = new LinkedHashMap<>();
+        for (BookInfo book : books) {
+            changes.put(book.getId(), book);
+        }
+        return changes;
+    }
+
+    private static List<String> listOf(String... ids) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, ids);
+        return list;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.util.PerfMetrics;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Unit tests for MarkedBooksRepository, over journals in a temporary directory with
+ * notifications run inline.
+ */
+public class MarkedBooksRepositoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        // Trace sections are only available on a device
+        PerfMetrics.setEnabled(false);
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void exportAndImport_keepsMarkedTimes() throws Exception {
+        MarkedBooksRepository source = newRepository("source.jsonl");
+        source.importFrom(jsonLines(book("a", 3000), book("b", 1000), book("c", 2000)));
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertEquals(3, source.exportTo(exported));
+        MarkedBooksRepository target = newRepository("target.jsonl");
+        target.importFrom(new ByteArrayInputStream(exported.toByteArray()));
+
+        for (String id : Arrays.asList("a", "b", "c")) {
+            assertEquals(id, source.getMarkedBook(id).getMarkedTime(), target.getMarkedBook(id).getMarkedTime());
+        }
+        assertEquals(Arrays.asList("a", "c", "b"), ids(target.getMarkedBooks(SortedBookIndex.LATEST_MARKED)));
+        assertEquals(ids(source.getMarkedBooks(SortedBookIndex.LATEST_MARKED)),
+                ids(target.getMarkedBooks(SortedBookIndex.LATEST_MARKED)));
+    }
+
+    @Test
+    public void importFrom_stampsBooksWithoutMarkedTime() throws Exception {
+        MarkedBooksRepository repository = newRepository("marked.jsonl");
+        long before = System.currentTimeMillis();
+
+        repository.importFrom(jsonLines(book("a", 0), book("b", 1000)));
+
+        assertTrue(repository.getMarkedBook("a").getMarkedTime() >= before);
+        assertEquals(1000, repository.getMarkedBook("b").getMarkedTime());
+    }
+
+    @Test
+    public void markAll_stampsEveryBookWithNow() {
+        MarkedBooksRepository repository = newRepository("marked.jsonl");
+        long before = System.currentTimeMillis();
+
+        repository.markAll(Collections.singletonList(book("a", 1000)));
+
+        assertTrue(repository.getMarkedBook("a").getMarkedTime() >= before);
+    }
+
+    @Test
+    public void updateDetails_keepsSearchRanking() throws Exception {
+        MarkedBooksRepository repository = newRepository("marked.jsonl");
+        BookInfo oldest = book("a", 1000);
+        oldest.setSummary(true);
+        repository.importFrom(jsonLines(oldest, book("b", 2000), book("c", 3000)));
+        List<String> ranking = ids(repository.searchMarkedBooks("title"));
+        assertEquals(Arrays.asList("c", "b", "a"), ranking);
+
+        BookInfo details = book("a", 0);
+        details.setDescription("The full record");
+        assertTrue(repository.updateDetails(details));
+
+        assertEquals(ranking, ids(repository.searchMarkedBooks("title")));
+        assertEquals(Collections.singletonList("a"), ids(repository.searchMarkedBooks("full record")));
+        assertEquals(1000, repository.getMarkedBook("a").getMarkedTime());
+    }
+
+    @Test
+    public void load_keepsBooksMarkedWhileLoadingAndNotifiesOnce() throws Exception {
+        File file = new File(tempFolder.getRoot(), "marked.jsonl");
+        MarkedBooksJournal journal = new MarkedBooksJournal(file);
+        Map<String, BookInfo> stored = new LinkedHashMap<>();
+        stored.put("a", book("a", 1000));
+        stored.put("b", book("b", 2000));
+        journal.appendChanges(stored);
+
+        List<List<BookInfo>> notified = new ArrayList<>();
+        MarkedBooksRepository repository = new MarkedBooksRepository(journal, executor, Runnable::run);
+        repository.addChangeListener(new MarkedBooksRepository.ChangeListener() {
+            @Override
+            public void onBookMarked(BookInfo book) {
+            }
+
+            @Override
+            public void onBookUnmarked(BookInfo book) {
+            }
+
+            @Override
+            public void onBooksChanged(List<BookInfo> marked, List<BookInfo> unmarked) {
+                notified.add(marked);
+            }
+        });
+        assertFalse(repository.isLoaded());
+        repository.mark(book("a", 0));
+        repository.mark(book("c", 0));
+
+        repository.load(null);
+
+        assertTrue(repository.isLoaded());
+        assertEquals(Arrays.asList("b", "a", "c"), ids(repository.getMarkedBooks()));
+        assertEquals(1, notified.size());
+        assertEquals(Arrays.asList("a", "b"), ids(notified.get(0)));
+        assertEquals(Collections.singletonList("b"), ids(repository.searchMarkedBooks("title b")));
+
+        // The journal agrees once the early marks are written
+        repository.flush();
+        assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(new MarkedBooksJournal(file).load().keySet()));
+    }
+
+    private MarkedBooksRepository newRepository(String fileName) {
+        MarkedBooksJournal journal = new MarkedBooksJournal(new File(tempFolder.getRoot(), fileName));
+        MarkedBooksRepository repository = new MarkedBooksRepository(journal, executor, Runnable::run);
+        repository.load(null);
+        return repository;
+    }
+
+    private static ByteArrayInputStream jsonLines(BookInfo... books) throws Exception {
+        Gson gson = new Gson();
+        StringBuilder document = new StringBuilder();
+        for (BookInfo book : books) {
+            document.append(gson.toJson(book)).append('\n');
+        }
+        return new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BookInfo book(String id, long markedTime) {
+        BookInfo book = new BookInfo(id, "Title " + id, "", Collections.singletonList("Author"), "Publisher",
+                "2001", "", 100, "", "", "", "");
+        book.setMarkedTime(markedTime);
+        return book;
+    }
+
+    private static List<String> ids(List<BookInfo> books) {
+        List<String> ids = new ArrayList<>();
+        for (BookInfo book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for SearchResultStore's pages on disk: lookups by query, page and projection,
+ * least-recently-used eviction and unreadable files.
+ */
+public class SearchResultStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File directory;
+    private SearchResultStore store;
+
+    @Before
+    public void setUp() {
+        directory = new File(tempFolder.getRoot(), "search_results");
+        store = new SearchResultStore(directory);
+    }
+
+    @Test
+    public void put_thenGetReturnsSameBooks() {
+        store.put("android", 0, "FULL", books("a", "b"));
+        store.put("android", 1, "FULL", books("c"));
+
+        assertEquals(Arrays.asList("a", "b"), ids(store.get("android", 0, "FULL")));
+        assertEquals(Collections.singletonList("c"), ids(store.get("android", 1, "FULL")));
+        assertNull(store.get("android", 2, "FULL"));
+        assertNull(store.get("kotlin", 0, "FULL"));
+
+        // A new store over the same directory finds the pages again
+        assertEquals(Arrays.asList("a", "b"), ids(new SearchResultStore(directory).get("android", 0, "FULL")));
+    }
+
+    @Test
+    public void get_neverServesAnotherProjection() {
+        store.put("android", 0, "SUMMARY", books("a"));
+
+        assertNull(store.get("android", 0, "FULL"));
+        assertNotNull(store.get("android", 0, "SUMMARY"));
+
+        store.put("android", 0, "FULL", books("b"));
+        assertEquals(Collections.singletonList("a"), ids(store.get("android", 0, "SUMMARY")));
+        assertEquals(Collections.singletonList("b"), ids(store.get("android", 0, "FULL")));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedPagesOverBudget() {
+        store.put("q", 0, "FULL", books("a0", "b0", "c0"));
+        long pageBytes = directorySize();
+        store.setMaxBytes(pageBytes * 3 + pageBytes / 2);
+        store.put("q", 1, "FULL", books("a1", "b1", "c1"));
+        store.put("q", 2, "FULL", books("a2", "b2", "c2"));
+
+        // Reading page 0 makes page 1 the least recently used
+        assertNotNull(store.get("q", 0, "FULL"));
+        store.put("q", 3, "FULL", books("a3", "b3", "c3"));
+        store.put("q", 4, "FULL", books("a4", "b4", "c4"));
+
+        assertNull(store.get("q", 1, "FULL"));
+        assertNull(store.get("q", 2, "FULL"));
+        assertNotNull(store.get("q", 0, "FULL"));
+        assertNotNull(store.get("q", 3, "FULL"));
+        assertNotNull(store.get("q", 4, "FULL"));
+        assertTrue(directorySize() <= pageBytes * 3 + pageBytes / 2);
+    }
+
+    @Test
+    public void get_deletesUnreadableFile() throws Exception {
+        store.put("android", 0, "FULL", books("a"));
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        Files.write(files[0].toPath(), "{\"query\":\"android\",\"books\":[{".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(store.get("android", 0, "FULL"));
+        assertEquals(0, directory.listFiles().length);
+
+        // The page can be stored again afterwards
+        store.put("android", 0, "FULL", books("b"));
+        assertEquals(Collections.singletonList("b"), ids(store.get("android", 0, "FULL")));
+    }
+
+    private long directorySize() {
+        long size = 0;
+        for (File file : directory.listFiles()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private static List<BookInfo> books(String... ids) {
+        List<BookInfo> books = new ArrayList<>();
+        for (String id : ids) {
+            books.add(new BookInfo(id, "Title " + id, "", Collections.singletonList("Author"), "Publisher",
+                    "2001", "", 100, "", "", "", ""));
+        }
+        return books;
+    }
+
+    private static List<String> ids(List<BookInfo> books) {
+        List<String> ids = new ArrayList<>();
+        for (BookInfo book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bookmark.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for SortedBookIndex's published date keys and the published order they give.
+ */
+public class SortedBookIndexTest {
+
+    @Test
+    public void parsePublishedDay_countsDaysFromEpoch() {
+        assertEquals(0, SortedBookIndex.parsePublishedDay("1970-01-01"));
+        assertEquals(31, SortedBookIndex.parsePublishedDay("1970-02-01"));
+        assertEquals(-365, SortedBookIndex.parsePublishedDay("1969"));
+        assertEquals(18019, SortedBookIndex.parsePublishedDay("2019-05-03"));
+    }
+
+    @Test
+    public void parsePublishedDay_treatsMissingMonthAndDayAsFirst() {
+        assertEquals(SortedBookIndex.parsePublishedDay("2019-01-01"), SortedBookIndex.parsePublishedDay("2019"));
+        assertEquals(SortedBookIndex.parsePublishedDay("2019-05-01"), SortedBookIndex.parsePublishedDay("2019-05"));
+        assertEquals(SortedBookIndex.parsePublishedDay("2019-05-03"),
+                SortedBookIndex.parsePublishedDay("2019-05-03T00:00:00Z"));
+    }
+
+    @Test
+    public void parsePublishedDay_ordersPartialDatesChronologically() {
+        long year = SortedBookIndex.parsePublishedDay("2019");
+        long month = SortedBookIndex.parsePublishedDay("2019-05");
+        long day = SortedBookIndex.parsePublishedDay("2019-05-03");
+
+        assertTrue(year < month);
+        assertTrue(month < day);
+        assertTrue(day < SortedBookIndex.parsePublishedDay("2020"));
+        assertTrue(SortedBookIndex.parsePublishedDay("2018-12-31") < year);
+    }
+
+    @Test
+    public void parsePublishedDay_rejectsUnparseableDates() {
+        long unknown = SortedBookIndex.parsePublishedDay(null);
+        assertEquals(Long.MIN_VALUE, unknown);
+        for (String date : Arrays.asList("", "201", "circa 1850", "19xx", "2019-13", "2019-00-10", "2019-05-32")) {
+            assertEquals(date, unknown, SortedBookIndex.parsePublishedDay(date));
+        }
+    }
+
+    @Test
+    public void getBooks_publishedOrderPutsUnknownDatesFirst() {
+        List<String> dates = Arrays.asList("2019-05-03", "", "2019", "unknown", "2019-05", "1999-12");
+        SortedBookIndex index = new SortedBookIndex();
+        for (int i = 0; i < dates.size(); i++) {
+            index.add("k" + i, book("k" + i, dates.get(i)));
+        }
+
+        // Undated books tie, so they fall back to key order
+        assertEquals(Arrays.asList("", "unknown", "1999-12", "2019", "2019-05", "2019-05-03"),
+                publishedDates(index.getBooks(SortedBookIndex.PUBLISHED_ASCENDING)));
+
+        List<String> descending = publishedDates(index.getBooks(SortedBookIndex.PUBLISHED_ASCENDING));
+        Collections.reverse(descending);
+        assertEquals(descending, publishedDates(index.getBooks(SortedBookIndex.PUBLISHED_DESCENDING)));
+        assertEquals(3, index.indexOf("k2", SortedBookIndex.PUBLISHED_ASCENDING));
+    }
+
+    @Test
+    public void getBooks_snapshotIsUnchangedByLaterChanges() {
+        SortedBookIndex index = new SortedBookIndex();
+        index.add("b", book("b", "2001"));
+        index.add("a", book("a", "2003"));
+        List<BookInfo> ascending = index.getBooks(SortedBookIndex.PUBLISHED_ASCENDING);
+        List<BookInfo> descending = index.getBooks(SortedBookIndex.PUBLISHED_DESCENDING);
+
+        index.add("c", book("c", "2002"));
+        index.remove("a");
+
+        assertEquals(Arrays.asList("2001", "2003"), publishedDates(ascending));
+        assertEquals(Arrays.asList("2003", "2001"), publishedDates(descending));
+        assertEquals(Arrays.asList("2001", "2002"), publishedDates(index.getBooks(SortedBookIndex.PUBLISHED_ASCENDING)));
+        assertEquals(1, index.indexOf("c", SortedBookIndex.PUBLISHED_ASCENDING));
+    }
+
+    private static BookInfo book(String id, String publishedDate) {
+        return new BookInfo(id, "Title " + id, "", Collections.singletonList("Author"), "Publisher",
+                publishedDate, "", 100, "", "", "", "");
+    }
+
+    private static List<String> publishedDates(List<BookInfo> books) {
+        List<String> dates = new ArrayList<>();
+        for (BookInfo book : books) {
+            dates.add(book.getPublishedDate());
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bookmark.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Unit tests for the compact BookInfo representation: interned publisher and author names
+ * in an immutable AuthorList. The heap it saves is measured by the :benchmark module's
+ * BookInfoMemoryBenchmark.
+ */
+public class BookInfoMemoryTest {
+
+    private static final int PUBLISHERS = 40;
+    private static final int AUTHORS = 300;
+
+    @Test
+    public void constructor_internsPublisherAndAuthors() {
+        BookInfo first = book(1);
+        BookInfo second = book(1 + AUTHORS * PUBLISHERS);
+
+        assertSame(first.getPublisher(), second.getPublisher());
+        assertSame(first.getAuthors().get(0), second.getAuthors().get(0));
+        assertTrue(first.getAuthors() instanceof AuthorList);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void authors_areImmutable() {
+        book(0).getAuthors().add("Someone Else");
+    }
+
+    @Test
+    public void gson_roundTripKeepsJsonShapeAndInterns() {
+        Gson gson = new Gson();
+        BookInfo original = book(7);
+        String json = gson.toJson(original);
+        assertTrue(json, json.contains("\"authors\":[\"" + original.getAuthors().get(0) + "\",\""));
+
+        BookInfo restored = gson.fromJson(json, BookInfo.class);
+
+        assertEquals(original.getAuthors(), restored.getAuthors());
+        assertTrue(restored.getAuthors() instanceof AuthorList);
+        assertSame(original.getPublisher(), restored.getPublisher());
+        assertSame(original.getAuthors().get(1), restored.getAuthors().get(1));
+    }
+
+    @Test
+    public void gson_readsBooksSavedWithoutAuthors() {
+        BookInfo restored = new Gson().fromJson("{\"id\":\"x\",\"authors\":[]}", BookInfo.class);
+
+        assertSame(AuthorList.EMPTY, restored.getAuthors());
+    }
+
+    /**
+     * Builds a book the way the parser does, with every string a separate copy.
+     */
+    private static BookInfo book(int i) {
+        return new BookInfo("vol" + i, "Title " + i, "", new ArrayList<>(Arrays.asList(author(i), author(i + 1))),
+                publisher(i), "2001", "", 100, "http://books.google.com/thumb?id=vol" + i, "", "", "");
+    }
+
+    // New String instances, like the ones a JSON reader returns for each occurrence
+    private static String author(int i) {
+        return new String("Author Number " + (i % AUTHORS));
+    }
+
+    private static String publisher(int i) {
+        return new String("Publishing House " + (i % PUBLISHERS));
+    }
+}
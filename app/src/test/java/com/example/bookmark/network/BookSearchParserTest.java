@@ -0,0 +1,127 @@
+package com.example.bookmark.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Unit tests for BookSearchParser. Its speed and allocation are measured by the
+ * :benchmark module's SearchMappingBenchmark.
+ */
+public class BookSearchParserTest {
+
+    private static final int ITEM_COUNT = 40;
+    private static final int DESCRIPTION_LENGTH = 4000;
+
+    @Test
+    public void parse_readsBookInfoFields() throws IOException {
+        List<BookInfo> books = BookSearchParser.parse(new StringReader(searchResponse(1)));
+
+        assertEquals(1, books.size());
+        BookInfo book = books.get(0);
+        assertEquals("vol0", book.getId());
+        assertEquals("Title 0", book.getTitle());
+        assertEquals("Subtitle", book.getSubtitle());
+        assertEquals(2, book.getAuthors().size());
+        assertEquals("Second Author", book.getAuthors().get(1));
+        assertEquals("Publisher", book.getPublisher());
+        assertEquals("2004-05-12", book.getPublishedDate());
+        assertEquals(DESCRIPTION_LENGTH, book.getDescription().length());
+        assertEquals(321, book.getPageCount());
+        assertEquals("http://books.google.com/thumb?id=vol0", book.getThumbnail());
+        assertEquals("http://books.google.com/preview?id=vol0", book.getPreviewLink());
+        assertEquals("http://books.google.com/info?id=vol0", book.getInfoLink());
+        assertEquals("https://play.google.com/store/books/details?id=vol0", book.getBuyLink());
+    }
+
+    @Test
+    public void parse_defaultsMissingFields() throws IOException {
+        String json = "{\"kind\":\"books#volumes\",\"items\":[{\"id\":\"x\",\"volumeInfo\":{\"title\":\"T\",\"pageCount\":null}}]}";
+        BookInfo book = BookSearchParser.parse(new StringReader(json)).get(0);
+
+        assertEquals("", book.getSubtitle());
+        assertTrue(book.getAuthors().isEmpty());
+        assertEquals(0, book.getPageCount());
+        assertEquals("", book.getThumbnail());
+        assertEquals("", book.getBuyLink());
+    }
+
+    @Test
+    public void parse_returnsEmptyListWithoutItems() throws IOException {
+        assertTrue(BookSearchParser.parse(new StringReader("{\"totalItems\":0}")).isEmpty());
+    }
+
+    @Test
+    public void parseVolume_readsSingleVolume() throws IOException {
+        String json = "{\"kind\":\"books#volume\",\"id\":\"v1\",\"volumeInfo\":{\"title\":\"T\",\"description\":\"D\"},"
+                + "\"saleInfo\":{\"buyLink\":\"http://buy\"}}";
+        BookInfo book = BookSearchParser.parseVolume(new StringReader(json));
+
+        assertEquals("v1", book.getId());
+        assertEquals("T", book.getTitle());
+        assertEquals("D", book.getDescription());
+        assertEquals("http://buy", book.getBuyLink());
+        assertFalse(book.isSummary());
+    }
+
+    @Test
+    public void parse_readsEveryItemInOrder() throws IOException {
+        List<BookInfo> books = BookSearchParser.parse(new StringReader(searchResponse(ITEM_COUNT)));
+
+        assertEquals(ITEM_COUNT, books.size());
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals("vol" + i, books.get(i).getId());
+            assertEquals(DESCRIPTION_LENGTH, books.get(i).getDescription().length());
+        }
+    }
+
+    /**
+     * Builds a search response shaped like the Google Books API, including the large
+     * sections the parser is expected to skip.
+     */
+    private static String searchResponse(int count) {
+        StringBuilder description = new StringBuilder();
+        while (description.length() < DESCRIPTION_LENGTH) {
+            description.append("A long description. ");
+        }
+        description.setLength(DESCRIPTION_LENGTH);
+
+        StringBuilder json = new StringBuilder("{\"kind\":\"books#volumes\",\"totalItems\":1000,\"items\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"kind\":\"books#volume\",\"id\":\"vol").append(i).append("\",")
+                    .append("\"etag\":\"abc\",\"selfLink\":\"https://www.googleapis.com/books/v1/volumes/vol").append(i).append("\",")
+                    .append("\"volumeInfo\":{")
+                    .append("\"title\":\"Title ").append(i).append("\",")
+                    .append("\"subtitle\":\"Subtitle\",")
+                    .append("\"authors\":[\"First Author\",\"Second Author\"],")
+                    .append("\"publisher\":\"Publisher\",")
+                    .append("\"publishedDate\":\"2004-05-12\",")
+                    .append("\"description\":\"").append(description).append("\",")
+                    .append("\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"0123456789\"}],")
+                    .append("\"readingModes\":{\"text\":false,\"image\":true},")
+                    .append("\"pageCount\":321,")
+                    .append("\"categories\":[\"Fiction\"],")
+                    .append("\"imageLinks\":{\"smallThumbnail\":\"http://books.google.com/small?id=vol").append(i)
+                    .append("\",\"thumbnail\":\"http://books.google.com/thumb?id=vol").append(i).append("\"},")
+                    .append("\"previewLink\":\"http://books.google.com/preview?id=vol").append(i).append("\",")
+                    .append("\"infoLink\":\"http://books.google.com/info?id=vol").append(i).append("\"},")
+                    .append("\"saleInfo\":{\"country\":\"GB\",\"saleability\":\"FOR_SALE\",")
+                    .append("\"buyLink\":\"https://play.google.com/store/books/details?id=vol").append(i).append("\"},")
+                    .append("\"accessInfo\":{\"country\":\"GB\",\"viewability\":\"PARTIAL\",\"embeddable\":true,")
+                    .append("\"webReaderLink\":\"http://play.google.com/books/reader?id=vol").append(i).append("\"},")
+                    .append("\"searchInfo\":{\"textSnippet\":\"").append(description, 0, 200).append("\"}}");
+        }
+        return json.append("]}").toString();
+    }
+}
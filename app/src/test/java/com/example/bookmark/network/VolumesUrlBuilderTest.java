@@ -0,0 +1,59 @@
+package com.example.bookmark.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for VolumesUrlBuilder and its field projections.
+ */
+public class VolumesUrlBuilderTest {
+
+    private static final String BASE = "https://www.googleapis.com/books/v1/volumes";
+
+    @Test
+    public void buildSearch_encodesQueryAndAddsPagingAndFields() {
+        String url = new VolumesUrlBuilder(BASE)
+                .query("lord of the rings & more")
+                .startIndex(40)
+                .maxResults(20)
+                .projection(VolumesUrlBuilder.Projection.SUMMARY)
+                .buildSearch();
+
+        assertEquals(BASE + "?q=lord%20of%20the%20rings%20%26%20more&startIndex=40&maxResults=20"
+                + "&fields=items(" + VolumesUrlBuilder.Projection.SUMMARY.volumeFields() + ")", url);
+    }
+
+    @Test
+    public void buildVolume_usesVolumeFields() {
+        String url = new VolumesUrlBuilder(BASE)
+                .projection(VolumesUrlBuilder.Projection.FULL)
+                .buildVolume("zyTCAlFPjgYC");
+
+        assertEquals(BASE + "/zyTCAlFPjgYC?fields=" + VolumesUrlBuilder.Projection.FULL.volumeFields(), url);
+    }
+
+    @Test
+    public void fullProjection_coversEveryParsedField() {
+        String fields = VolumesUrlBuilder.Projection.FULL.volumeFields();
+        String[] parsed = {"id", "title", "subtitle", "authors", "publisher", "publishedDate", "description",
+                "pageCount", "imageLinks/thumbnail", "previewLink", "infoLink", "saleInfo/buyLink"};
+        for (String field : parsed) {
+            assertTrue(field, fields.contains(field));
+        }
+    }
+
+    @Test
+    public void summaryProjection_leavesOutDetailFields() {
+        String fields = VolumesUrlBuilder.Projection.SUMMARY.volumeFields();
+
+        assertTrue(fields.contains("title"));
+        assertTrue(fields.contains("imageLinks/thumbnail"));
+        // Sharing a row sends its preview link
+        assertTrue(fields.contains("previewLink"));
+        assertFalse(fields.contains("description"));
+        assertFalse(fields.contains("saleInfo"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.models.BookInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BenchmarkData builds deterministic books and search responses shaped like the ones the
+ * app handles, so every benchmark run measures the same inputs.
+ */
+final class BenchmarkData {
+
+    private static final String[] AUTHORS = {
+            "Émile Zola", "Ada Palmer", "ursula k. le guin", "Chinua Achebe", "Italo Calvino",
+            "Jane Austen", "Haruki Murakami", "Toni Morrison", "Jorge Luis Borges", "Zadie Smith"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates books with distinct IDs and titles, a mix of "yyyy", "yyyy-MM" and
+     * "yyyy-MM-dd" dates, and spread-out marked times.
+     * @param count The number of books.
+     * @return The books, in creation order.
+     */
+    static List<BookInfo> books(int count) {
+        Random random = new Random(42);
+        List<BookInfo> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ArrayList<String> authors = new ArrayList<>();
+            authors.add(AUTHORS[random.nextInt(AUTHORS.length)]);
+            if (random.nextBoolean()) {
+                authors.add(AUTHORS[random.nextInt(AUTHORS.length)]);
+            }
+            BookInfo book = new BookInfo("vol" + i, "Title " + i, "Subtitle " + i, authors,
+                    "Publisher " + (i % 50), publishedDate(random), description(random),
+                    50 + random.nextInt(900),
+                    "http://books.google.com/books/content?id=vol" + i + "&printsec=frontcover&img=1&zoom=1",
+                    "http://books.google.com/books?id=vol" + i + "&printsec=frontcover",
+                    "http://books.google.com/books?id=vol" + i + "&dq=query",
+                    "https://play.google.com/store/books/details?id=vol" + i);
+            book.setMarkedTime(1_600_000_000_000L + random.nextInt(Integer.MAX_VALUE));
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static String publishedDate(Random random) {
+        int year = 1900 + random.nextInt(125);
+        switch (random.nextInt(3)) {
+            case 0:
+                return String.valueOf(year);
+            case 1:
+                return String.format("%d-%02d", year, 1 + random.nextInt(12));
+            default:
+                return String.format("%d-%02d-%02d", year, 1 + random.nextInt(12), 1 + random.nextInt(28));
+        }
+    }
+
+    private static String description(Random random) {
+        StringBuilder description = new StringBuilder();
+        int length = 200 + random.nextInt(1800);
+        while (description.length() < length) {
+            description.append("A description sentence about the book. ");
+        }
+        description.setLength(length);
+        return description.toString();
+    }
+
+    /**
+     * Builds a Google Books "volumes" search response, including the sections that the
+     * app does not read (accessInfo, searchInfo, ...).
+     * @param count The number of items.
+     * @return The response body.
+     */
+    static String searchResponse(int count) {
+        List<BookInfo> books = books(count);
+        StringBuilder json = new StringBuilder("{\"kind\":\"books#volumes\",\"totalItems\":1000,\"items\":[");
+        for (int i = 0; i < count; i++) {
+            BookInfo book = books.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"kind\":\"books#volume\",\"id\":\"").append(book.getId()).append("\",")
+                    .append("\"etag\":\"abc\",\"selfLink\":\"https://www.googleapis.com/books/v1/volumes/")
+                    .append(book.getId()).append("\",")
+                    .append("\"volumeInfo\":{")
+                    .append("\"title\":\"").append(book.getTitle()).append("\",")
+                    .append("\"subtitle\":\"").append(book.getSubtitle()).append("\",")
+                    .append("\"authors\":[");
+            for (int j = 0; j < book.getAuthors().size(); j++) {
+                json.append((j > 0) ? ",\"" : "\"").append(book.getAuthors().get(j)).append('"');
+            }
+            json.append("],")
+                    .append("\"publisher\":\"").append(book.getPublisher()).append("\",")
+                    .append("\"publishedDate\":\"").append(book.getPublishedDate()).append("\",")
+                    .append("\"description\":\"").append(book.getDescription()).append("\",")
+                    .append("\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"0123456789\"}],")
+                    .append("\"readingModes\":{\"text\":false,\"image\":true},")
+                    .append("\"pageCount\":").append(book.getPageCount()).append(',')
+                    .append("\"categories\":[\"Fiction\"],")
+                    .append("\"imageLinks\":{\"smallThumbnail\":\"").append(book.getThumbnail())
+                    .append("\",\"thumbnail\":\"").append(book.getThumbnail()).append("\"},")
+                    .append("\"previewLink\":\"").append(book.getPreviewLink()).append("\",")
+                    .append("\"infoLink\":\"").append(book.getInfoLink()).append("\"},")
+                    .append("\"saleInfo\":{\"country\":\"GB\",\"saleability\":\"FOR_SALE\",")
+                    .append("\"buyLink\":\"").append(book.getBuyLink()).append("\"},")
+                    .append("\"accessInfo\":{\"country\":\"GB\",\"viewability\":\"PARTIAL\",\"embeddable\":true},")
+                    .append("\"searchInfo\":{\"textSnippet\":\"A short snippet.\"}}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Heap held by a library of books: BookInfo, with pooled publisher and author names in an
+ * AuthorList, against the fields it had before, where each book kept its own name strings
+ * and an ArrayList. Every operation builds a library from strings shaped like a parser's
+ * output, a separate copy per occurrence. The gc profiler's gc.alloc.rate.norm is the cost
+ * of building it; the retainedBytes counter is what the last library built in an iteration
+ * keeps reachable after a full collection.
+ */
+@State(Scope.Benchmark)
+public class BookInfoMemoryBenchmark {
+
+    private static final int PUBLISHERS = 40;
+    private static final int AUTHORS = 300;
+
+    @Param({"10000"})
+    public int bookCount;
+
+    /**
+     * Reports the heap retained by the last library built in each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+        Object library;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+            library = null;
+        }
+
+        @TearDown(Level.Iteration)
+        public void measure() {
+            Object kept = library;
+            library = null;
+            long with = usedHeapAfterGc();
+            Reference.reachabilityFence(kept);
+            kept = null;
+            retainedBytes = with - usedHeapAfterGc();
+        }
+    }
+
+    @Benchmark
+    public Object bookInfo(Retained retained) {
+        List<BookInfo> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new BookInfo("vol" + i, "Title " + i, "", new ArrayList<>(Arrays.asList(author(i), author(i + 1))),
+                    publisher(i), "2001", "", 100, "http://books.google.com/thumb?id=vol" + i, "", "", ""));
+        }
+        retained.library = books;
+        return books;
+    }
+
+    @Benchmark
+    public Object legacyFields(Retained retained) {
+        List<LegacyBookInfo> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            LegacyBookInfo book = new LegacyBookInfo();
+            book.id = "vol" + i;
+            book.title = "Title " + i;
+            book.subtitle = "";
+            book.authors = new ArrayList<>(Arrays.asList(author(i), author(i + 1)));
+            book.publisher = publisher(i);
+            book.publishedDate = "2001";
+            book.description = "";
+            book.pageCount = 100;
+            book.thumbnail = "http://books.google.com/thumb?id=vol" + i;
+            book.previewLink = "";
+            book.infoLink = "";
+            book.buyLink = "";
+            books.add(book);
+        }
+        retained.library = books;
+        return books;
+    }
+
+    // New String instances, like the ones a JSON reader returns for each occurrence
+    private static String author(int i) {
+        return new String("Author Number " + (i % AUTHORS));
+    }
+
+    private static String publisher(int i) {
+        return new String("Publishing House " + (i % PUBLISHERS));
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * The fields BookInfo had before publisher and author names were pooled.
+     */
+    @SuppressWarnings("unused")
+    private static final class LegacyBookInfo {
+        String id, title, subtitle, publisher, publishedDate, description, thumbnail, previewLink, infoLink, buyLink;
+        ArrayList<String> authors;
+        int pageCount;
+        long markedTime;
+        boolean summary;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.models.BookInfo;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Gson serialization of the whole marked-books list, as the legacy "markedBooks" preference
+ * stored it on every mark and unmark, and deserialization of it, as every load did.
+ */
+@State(Scope.Benchmark)
+public class BookListGsonBenchmark {
+
+    private static final Type BOOK_LIST_TYPE = new TypeToken<List<BookInfo>>() {}.getType();
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int bookCount;
+
+    private final Gson gson = new Gson();
+    private List<BookInfo> books;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(bookCount);
+        json = gson.toJson(books);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(books);
+    }
+
+    @Benchmark
+    public List<BookInfo> deserialize() {
+        return gson.fromJson(json, BOOK_LIST_TYPE);
+    }
+}
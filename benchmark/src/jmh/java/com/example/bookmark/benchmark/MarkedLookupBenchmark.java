@@ -0,0 +1,72 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.models.BookInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The isBookMarked membership check: the legacy linear scan comparing titles against the
+ * keyed lookup MarkedBooksRepository now does. Hits probe a book in the middle of the
+ * list and misses probe a title that is not marked, the worst case for the scan.
+ */
+@State(Scope.Benchmark)
+public class MarkedLookupBenchmark {
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int bookCount;
+
+    private List<BookInfo> books;
+    private Map<String, BookInfo> booksById;
+    private String presentTitle;
+    private String presentId;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(bookCount);
+        booksById = new HashMap<>();
+        for (BookInfo book : books) {
+            booksById.put(book.getId(), book);
+        }
+        BookInfo middle = books.get(bookCount / 2);
+        // Fresh String copies so equals() compares contents rather than hitting identity
+        presentTitle = new String(middle.getTitle());
+        presentId = new String(middle.getId());
+    }
+
+    @Benchmark
+    public boolean titleScanHit() {
+        return titleScan(presentTitle);
+    }
+
+    @Benchmark
+    public boolean titleScanMiss() {
+        return titleScan("Not Marked");
+    }
+
+    @Benchmark
+    public boolean keyedLookupHit() {
+        return booksById.containsKey(presentId);
+    }
+
+    @Benchmark
+    public boolean keyedLookupMiss() {
+        return booksById.containsKey("not-marked");
+    }
+
+    private boolean titleScan(String title) {
+        for (BookInfo book : books) {
+            if (book.getTitle().equals(title)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
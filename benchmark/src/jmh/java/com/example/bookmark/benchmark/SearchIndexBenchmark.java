@@ -0,0 +1,56 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.data.BookSearchIndex;
+import com.example.bookmark.models.BookInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries against the marked books' full-text index, and the incremental update done on
+ * every mark and unmark.
+ */
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int bookCount;
+
+    // A prefix, a whole word, an author and a multi-word query
+    @Param({"tit", "description", "jane austen", "title 4 publisher"})
+    public String query;
+
+    private BookSearchIndex index;
+    private BookInfo extraBook;
+
+    @Setup
+    public void setUp() {
+        List<BookInfo> books = BenchmarkData.books(bookCount + 1);
+        extraBook = books.remove(bookCount);
+        Map<String, BookInfo> booksById = new LinkedHashMap<>();
+        for (BookInfo book : books) {
+            booksById.put(book.getId(), book);
+        }
+        index = new BookSearchIndex();
+        index.reset(booksById);
+    }
+
+    @Benchmark
+    public List<BookInfo> search() {
+        return index.search(query);
+    }
+
+    @Benchmark
+    public BookSearchIndex addRemove() {
+        index.add(extraBook.getId(), extraBook);
+        index.remove(extraBook.getId());
+        return index;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.models.BookInfo;
+import com.example.bookmark.network.BookSearchParser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The search response to BookInfo mapping: the legacy getBooksInfo path, which built an
+ * org.json DOM and read it with optString, against the streaming BookSearchParser. Both
+ * start from the response body as a String, as Volley hands it over. With the gc profiler,
+ * gc.alloc.rate.norm divided by itemCount is the bytes allocated per parsed item.
+ */
+@State(Scope.Benchmark)
+public class SearchMappingBenchmark {
+
+    // 10 was the API's default page, 20 is SearchPager.PAGE_SIZE and 40 the API maximum
+    @Param({"10", "20", "40"})
+    public int itemCount;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.searchResponse(itemCount);
+    }
+
+    @Benchmark
+    public List<BookInfo> orgJsonMapping() throws JSONException {
+        List<BookInfo> books = new ArrayList<>();
+        JSONArray itemsArray = new JSONObject(json).getJSONArray("items");
+        for (int i = 0; i < itemsArray.length(); i++) {
+            JSONObject itemsObj = itemsArray.getJSONObject(i);
+            JSONObject volumeObj = itemsObj.getJSONObject("volumeInfo");
+
+            JSONArray authorsArray = volumeObj.optJSONArray("authors");
+            JSONObject imageLinks = volumeObj.optJSONObject("imageLinks");
+            JSONObject saleInfoObj = itemsObj.optJSONObject("saleInfo");
+            ArrayList<String> authorsArrayList = new ArrayList<>();
+            if (authorsArray != null) {
+                for (int j = 0; j < authorsArray.length(); j++) {
+                    authorsArrayList.add(authorsArray.optString(j));
+                }
+            }
+
+            books.add(new BookInfo(itemsObj.optString("id"), volumeObj.optString("title"),
+                    volumeObj.optString("subtitle"), authorsArrayList, volumeObj.optString("publisher"),
+                    volumeObj.optString("publishedDate"), volumeObj.optString("description"),
+                    volumeObj.optInt("pageCount"),
+                    (imageLinks != null) ? imageLinks.optString("thumbnail") : "",
+                    volumeObj.optString("previewLink"), volumeObj.optString("infoLink"),
+                    (saleInfoObj != null) ? saleInfoObj.optString("buyLink") : ""));
+        }
+        return books;
+    }
+
+    @Benchmark
+    public List<BookInfo> streamingParser() throws IOException {
+        return BookSearchParser.parse(new StringReader(json));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bookmark.benchmark;
+
+import com.example.bookmark.data.SortedBookIndex;
+import com.example.bookmark.models.BookInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every MarkedBooksActivity.sortBooks order. The legacy path copies the list and sorts it
+ * with the original comparators on each spinner change; the indexed path takes the
+ * already-ordered snapshot from SortedBookIndex, as MarkedBooksRepository.getMarkedBooks
+ * does. Rebuilding and incrementally adding to the index are measured separately, as is the
+ * copy-on-write a change pays after a snapshot was taken.
+ */
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int bookCount;
+
+    // Positions of the "sort_options" array
+    @Param({"0", "1", "2", "3", "4", "5"})
+    public int order;
+
+    private List<BookInfo> books;
+    private Map<String, BookInfo> booksById;
+    private SortedBookIndex index;
+    private Comparator<BookInfo> legacyComparator;
+    private BookInfo extraBook;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(bookCount + 1);
+        extraBook = books.remove(bookCount);
+        booksById = new LinkedHashMap<>();
+        for (BookInfo book : books) {
+            booksById.put(book.getId(), book);
+        }
+        index = new SortedBookIndex();
+        index.reset(booksById);
+        legacyComparator = legacyComparator(order);
+    }
+
+    @Benchmark
+    public List<BookInfo> legacySort() {
+        List<BookInfo> sorted = new ArrayList<>(books);
+        Collections.sort(sorted, legacyComparator);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<BookInfo> indexedSnapshot() {
+        return index.getBooks(order);
+    }
+
+    @Benchmark
+    public SortedBookIndex indexRebuild() {
+        SortedBookIndex rebuilt = new SortedBookIndex();
+        rebuilt.reset(booksById);
+        return rebuilt;
+    }
+
+    @Benchmark
+    public SortedBookIndex indexAddRemove() {
+        index.add(extraBook.getId(), extraBook);
+        index.remove(extraBook.getId());
+        return index;
+    }
+
+    @Benchmark
+    public SortedBookIndex indexAddRemoveAfterSnapshot() {
+        index.getBooks(order);
+        index.add(extraBook.getId(), extraBook);
+        index.remove(extraBook.getId());
+        return index;
+    }
+
+    /**
+     * The comparators MarkedBooksActivity.sortBooks used before SortedBookIndex.
+     */
+    private static Comparator<BookInfo> legacyComparator(int order) {
+        switch (order) {
+            case 1: // Oldest Marked
+                return (book1, book2) -> Long.compare(book1.getMarkedTime(), book2.getMarkedTime());
+            case 2: // Published Date Ascending
+                return (book1, book2) -> book1.getPublishedDate().compareTo(book2.getPublishedDate());
+            case 3: // Published Date Descending
+                return (book1, book2) -> book2.getPublishedDate().compareTo(book1.getPublishedDate());
+            case 4: // Author Ascending
+                return (book1, book2) -> firstAuthor(book1).compareTo(firstAuthor(book2));
+            case 5: // Author Descending
+                return (book1, book2) -> firstAuthor(book2).compareTo(firstAuthor(book1));
+            case 0: // Latest Marked
+            default:
+                return (book1, book2) -> Long.compare(book2.getMarkedTime(), book1.getMarkedTime());
+        }
+    }
+
+    private static String firstAuthor(BookInfo book) {
+        return (book.getAuthors() != null && !book.getAuthors().isEmpty()) ? book.getAuthors().get(0) : "";
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bookmark.macrobenchmark
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Generates the app's baseline profile from the benchmarked journey. Run it with
+ * ./gradlew :app:generateBaselineProfile on an API 33+ device (or a rooted API 28+ one);
+ * the result is copied into the app's sources and shipped with every release build.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    private val server = MockBooksServer()
+
+    @Before
+    fun startServer() = server.start()
+
+    @After
+    fun stopServer() = server.close()
+
+    @Test
+    fun generate() = baselineProfileRule.collect(
+        packageName = TARGET_PACKAGE,
+        includeInStartupProfile = true
+    ) {
+        pressHome()
+        startWithMockServer()
+        searchBooks()
+        scrollResults()
+        openFirstDetails()
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bookmark.macrobenchmark
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.Until
+
+/**
+ * The user journey shared by the benchmarks and the baseline profile generator: launch,
+ * search against the mock server, scroll the results and open a book's details.
+ */
+
+const val TARGET_PACKAGE = "com.example.bookmark"
+const val SEARCH_QUERY = "benchmark"
+
+private const val WAIT_MILLIS = 10_000L
+
+/**
+ * Starts MainActivity and waits for the first frame. The benchmark build types of the app
+ * send every search to MockBooksServer, which must already be running.
+ */
+fun MacrobenchmarkScope.startWithMockServer() {
+    startActivityAndWait()
+}
+
+/**
+ * Submits a search and waits for the first result row.
+ */
+fun MacrobenchmarkScope.searchBooks(query: String = SEARCH_QUERY) {
+    device.findObject(By.res(TARGET_PACKAGE, "idEdtSearchBooks")).text = query
+    device.findObject(By.res(TARGET_PACKAGE, "idBtnSearch")).click()
+    device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "idTVBookTitle")), WAIT_MILLIS)
+}
+
+/**
+ * Flings through several pages of results, which also triggers page loads, then back up.
+ */
+fun MacrobenchmarkScope.scrollResults() {
+    val list = device.findObject(By.res(TARGET_PACKAGE, "idRVBooks"))
+    // Keep the gestures clear of the system navigation area
+    list.setGestureMargin(device.displayWidth / 5)
+    repeat(3) {
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+    list.fling(Direction.UP)
+    device.waitForIdle()
+}
+
+/**
+ * Opens the first visible result in BookDetails and waits for its description.
+ */
+fun MacrobenchmarkScope.openFirstDetails() {
+    device.findObject(By.res(TARGET_PACKAGE, "idTVBookTitle")).click()
+    device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "idTVDescription")), WAIT_MILLIS)
+}
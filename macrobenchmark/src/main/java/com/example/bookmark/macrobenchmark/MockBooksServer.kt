@@ -0,0 +1,113 @@
+package com.example.bookmark.macrobenchmark
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.ByteArrayOutputStream
+import java.net.InetAddress
+
+/**
+ * Serves deterministic Google Books search results and cover images on the device's
+ * loopback interface, so every benchmark run loads the same data without the network.
+ */
+class MockBooksServer : AutoCloseable {
+
+    private val server = MockWebServer()
+    private val cover = createCover()
+
+    fun start() {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val url = request.requestUrl ?: return MockResponse().setResponseCode(400)
+                return when (url.encodedPath) {
+                    SEARCH_PATH -> searchResponse(
+                        url.queryParameter("startIndex")?.toIntOrNull() ?: 0,
+                        url.queryParameter("maxResults")?.toIntOrNull() ?: 10
+                    )
+                    COVER_PATH -> MockResponse()
+                        .setHeader("Content-Type", "image/png")
+                        .setBody(Buffer().write(cover))
+                    else -> volumeResponse(url.encodedPath)
+                }
+            }
+        }
+        server.start(InetAddress.getByName("127.0.0.1"), PORT)
+    }
+
+    override fun close() {
+        server.shutdown()
+    }
+
+    private fun searchResponse(startIndex: Int, maxResults: Int): MockResponse {
+        val items = JSONArray()
+        for (i in startIndex until minOf(startIndex + maxResults, TOTAL_ITEMS)) {
+            items.put(volume(i))
+        }
+        val body = JSONObject()
+            .put("kind", "books#volumes")
+            .put("totalItems", TOTAL_ITEMS)
+            .put("items", items)
+        return MockResponse()
+            .setHeader("Content-Type", "application/json; charset=UTF-8")
+            .setBody(body.toString())
+    }
+
+    private fun volumeResponse(path: String): MockResponse {
+        // Single volumes are served at $SEARCH_PATH/mock<i>, as the app's detail loader requests them
+        val index = path.takeIf { it.startsWith("$SEARCH_PATH/mock") }
+            ?.removePrefix("$SEARCH_PATH/mock")
+            ?.toIntOrNull()
+            ?.takeIf { it in 0 until TOTAL_ITEMS }
+            ?: return MockResponse().setResponseCode(404)
+        return MockResponse()
+            .setHeader("Content-Type", "application/json; charset=UTF-8")
+            .setBody(volume(index).toString())
+    }
+
+    private fun volume(i: Int): JSONObject {
+        val id = "mock$i"
+        val base = "http://127.0.0.1:${server.port}"
+        val volumeInfo = JSONObject()
+            .put("title", "Benchmark Book $i")
+            .put("subtitle", "Volume ${i % 7 + 1}")
+            .put("authors", JSONArray().put("Author ${i % 13}").put("Co-Author ${i % 5}"))
+            .put("publisher", "Publisher ${i % 11}")
+            .put("publishedDate", "${1950 + i % 70}-0${i % 9 + 1}-1${i % 9}")
+            .put("description", DESCRIPTION)
+            .put("pageCount", 100 + i)
+            .put("imageLinks", JSONObject().put("thumbnail", "$base$COVER_PATH?id=$id"))
+            .put("previewLink", "$base/preview?id=$id")
+            .put("infoLink", "$base/info?id=$id")
+        return JSONObject()
+            .put("kind", "books#volume")
+            .put("id", id)
+            .put("volumeInfo", volumeInfo)
+            .put("saleInfo", JSONObject().put("buyLink", "$base/buy?id=$id"))
+    }
+
+    private companion object {
+        // The app's benchmark build types fetch from http://127.0.0.1:48080/books/v1/volumes,
+        // see VOLUMES_BASE_URL in app/build.gradle
+        const val PORT = 48080
+        const val SEARCH_PATH = "/books/v1/volumes"
+        const val COVER_PATH = "/cover"
+        const val TOTAL_ITEMS = 400
+
+        val DESCRIPTION = "A book served by the benchmark's mock server. ".repeat(30)
+
+        fun createCover(): ByteArray {
+            val bitmap = Bitmap.createBitmap(128, 192, Bitmap.Config.ARGB_8888)
+            bitmap.eraseColor(Color.rgb(120, 72, 40))
+            val out = ByteArrayOutputStream()
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out)
+            bitmap.recycle()
+            return out.toByteArray()
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bookmark.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Frame timing of the first search, the first scroll through idRVBooks and opening
+ * BookDetails in a freshly started process, before and after the baseline profile.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class SearchScrollBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    private val server = MockBooksServer()
+
+    @Before
+    fun startServer() = server.start()
+
+    @After
+    fun stopServer() = server.close()
+
+    @Test
+    fun searchScrollWithoutCompilation() = searchScroll(CompilationMode.None())
+
+    @Test
+    fun searchScrollWithBaselineProfile() = searchScroll(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun searchScroll(compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = {
+            pressHome()
+            startWithMockServer()
+        }
+    ) {
+        searchBooks()
+        scrollResults()
+        openFirstDetails()
+    }
+}
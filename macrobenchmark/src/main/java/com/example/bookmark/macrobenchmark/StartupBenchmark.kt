@@ -0,0 +1,42 @@
+package com.example.bookmark.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold start of MainActivity, without any AOT compilation (before) and with the shipped
+ * baseline profile (after). Results are written as JSON to
+ * build/outputs/connected_android_test_additional_output.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun startupWithoutCompilation() = startup(CompilationMode.None())
+
+    @Test
+    fun startupWithBaselineProfile() = startup(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = { pressHome() }
+    ) {
+        startActivityAndWait()
+    }
+}